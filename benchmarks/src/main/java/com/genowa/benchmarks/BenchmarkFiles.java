@@ -0,0 +1,36 @@
+package com.genowa.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Clean-up of the temporary directories benchmarks write their files to.
+ */
+final class BenchmarkFiles
+{
+    private BenchmarkFiles()
+    {
+    }
+
+    /**
+     * Deletes {@code dir} and everything under it; does nothing if it is null or already gone.
+     */
+    static void deleteTree(Path dir) throws IOException
+    {
+        if (dir == null || !Files.exists(dir))
+        {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir))
+        {
+            // Deepest first, so each directory is empty by the time it is deleted
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(path);
+            }
+        }
+    }
+}
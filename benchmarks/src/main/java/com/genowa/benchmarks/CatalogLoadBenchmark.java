@@ -0,0 +1,101 @@
+package com.genowa.benchmarks;
+
+import com.genowa.model.FieldCatalog;
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+import com.genowa.service.CancellableQuery;
+import com.genowa.service.CatalogSnapshotFile;
+import com.genowa.service.JdbcMetadataRepository;
+import com.genowa.service.MetadataCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the catalog from an embedded database: every table, every field into the
+ * columnar catalog, one table's fields, a batch of tables' fields, and the saved snapshot
+ * file that replaces all of it at startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogLoadBenchmark
+{
+    private static final int BATCH_TABLES = 500;
+
+    @Param({ "62", "2000" })
+    public int tables;
+
+    @Param({ "40" })
+    public int fieldsPerTable;
+
+    private SyntheticCatalog catalog;
+    private JdbcMetadataRepository repository;
+    private CatalogSnapshotFile snapshotFile;
+    private List<Integer> batchIds;
+    private int nextTable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        catalog = new SyntheticCatalog(tables, fieldsPerTable);
+        repository = catalog.getRepository();
+        batchIds = new ArrayList<>();
+        for (int id = 1; id <= Math.min(tables, BATCH_TABLES); id++)
+        {
+            batchIds.add(id);
+        }
+        MetadataCatalog.Snapshot snapshot = catalog.loadSnapshot();
+        snapshotFile = new CatalogSnapshotFile(Files.createTempDirectory("genowa-bench").resolve("catalog.snapshot"));
+        snapshotFile.write(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException
+    {
+        catalog.close();
+        BenchmarkFiles.deleteTree(snapshotFile.getPath().getParent());
+    }
+
+    @Benchmark
+    public List<GenTable> loadTables() throws SQLException
+    {
+        return repository.loadTables();
+    }
+
+    @Benchmark
+    public FieldCatalog loadAllFields() throws SQLException
+    {
+        FieldCatalog.Builder fields = FieldCatalog.builder();
+        repository.forEachField(fields::add);
+        return fields.build();
+    }
+
+    @Benchmark
+    public List<GenField> loadTableFields() throws SQLException
+    {
+        nextTable = nextTable % tables + 1;
+        return repository.loadFields(nextTable, new CancellableQuery());
+    }
+
+    @Benchmark
+    public Map<Integer, List<GenField>> loadFieldsBatch() throws SQLException
+    {
+        return repository.loadFields(batchIds);
+    }
+
+    @Benchmark
+    public MetadataCatalog.Snapshot readSnapshotFile() throws Exception
+    {
+        return snapshotFile.read();
+    }
+}
@@ -0,0 +1,173 @@
+package com.genowa.benchmarks;
+
+import com.genowa.codec.DataFileScanner;
+import com.genowa.codec.KeyIndex;
+import com.genowa.codec.RecordCodec;
+import com.genowa.codec.RecordLayout;
+import com.genowa.codec.RecordPredicate;
+import com.genowa.model.FieldKind;
+import com.genowa.service.MetadataCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The fixed-width record paths: decoding one record's fields - as text, and by kind as the
+ * rating code reads them - a parallel filtered count over a memory-mapped data file, and a
+ * key index lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark
+{
+    private static final int FIELDS = 12;
+
+    @Param({ "100000", "1000000" })
+    public int records;
+
+    private Path dir;
+    private RecordCodec codec;
+    private FieldKind[] kinds;
+    private DataFileScanner scanner;
+    private KeyIndex index;
+    private RecordPredicate predicate;
+    private ByteBuffer record;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        MetadataCatalog.Snapshot snapshot;
+        try (SyntheticCatalog catalog = new SyntheticCatalog(1, FIELDS))
+        {
+            snapshot = catalog.loadSnapshot();
+        }
+        RecordLayout layout = RecordLayout.compile(snapshot.getTable(1), snapshot.getFields(1));
+        codec = new RecordCodec(layout);
+        kinds = new FieldKind[layout.getFieldCount()];
+        for (int f = 0; f < kinds.length; f++)
+        {
+            kinds[f] = layout.getKind(f);
+        }
+
+        dir = Files.createTempDirectory("genowa-bench");
+        Path dataFile = dir.resolve("synthetic.dat");
+        writeDataFile(dataFile, layout);
+        scanner = DataFileScanner.open(dataFile, layout);
+        index = KeyIndex.openOrBuild(dataFile, layout);
+        predicate = RecordPredicate.fieldEquals(codec, layout.indexOf(SyntheticCatalog.fieldName(3)), "V7");
+
+        record = ByteBuffer.allocate(layout.getRecordLength());
+        scanner.read(records / 2, record);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        scanner.close();
+        BenchmarkFiles.deleteTree(dir);
+    }
+
+    private void writeDataFile(Path file, RecordLayout layout) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(layout.getRecordLength() + 1);
+        try (OutputStream out = Files.newOutputStream(file))
+        {
+            for (int r = 0; r < records; r++)
+            {
+                codec.clear(buf, 0);
+                for (int f = 0; f < layout.getFieldCount(); f++)
+                {
+                    FieldKind kind = layout.getKind(f);
+                    if (layout.isKey(f))
+                    {
+                        codec.writeString(buf, 0, f, Integer.toString(r, 36));
+                    }
+                    else if (kind == FieldKind.DECIMAL)
+                    {
+                        codec.writeDecimal(buf, 0, f, BigDecimal.valueOf(r % 100_000, 2));
+                    }
+                    else if (kind == FieldKind.DATE || kind == FieldKind.INTEGER)
+                    {
+                        codec.writeLong(buf, 0, f, 20200101 + r % 28);
+                    }
+                    else
+                    {
+                        codec.writeString(buf, 0, f, "V" + r % 10);
+                    }
+                }
+                buf.put(layout.getRecordLength(), (byte) '\n');
+                out.write(buf.array());
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeRecord(Blackhole bh)
+    {
+        for (int f = 0; f < FIELDS; f++)
+        {
+            bh.consume(codec.readString(record, 0, f));
+        }
+    }
+
+    @Benchmark
+    public void decodeRecordTyped(Blackhole bh)
+    {
+        for (int f = 0; f < FIELDS; f++)
+        {
+            switch (kinds[f])
+            {
+                case DECIMAL:
+                    bh.consume(codec.readDecimal(record, 0, f));
+                    break;
+                case INTEGER:
+                case DATE:
+                    bh.consume(codec.readLong(record, 0, f));
+                    break;
+                default:
+                    bh.consume(codec.readString(record, 0, f));
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public long decodeUnscaled()
+    {
+        // The allocation-free path: every numeric field as a scaled long
+        long sum = 0;
+        for (int f = 0; f < FIELDS; f++)
+        {
+            if (kinds[f] != FieldKind.CHAR)
+            {
+                sum += codec.readUnscaled(record, 0, f);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parallelCount() throws IOException
+    {
+        return scanner.count(predicate);
+    }
+
+    @Benchmark
+    public long keyLookup()
+    {
+        nextKey = (nextKey + 7919) % records;
+        return index.find(Integer.toString(nextKey, 36));
+    }
+}
@@ -0,0 +1,82 @@
+package com.genowa.benchmarks;
+
+import com.genowa.codec.RecordLayout;
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenField;
+import com.genowa.service.CancellableQuery;
+import com.genowa.service.JdbcMetadataRepository;
+import com.genowa.service.MetadataCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning one table's field definitions into something usable: mapping result rows to
+ * beans, reading the columnar catalog's row views, and compiling a record layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldMappingBenchmark
+{
+    private static final int TABLES = 200;
+
+    @Param({ "10", "40", "200" })
+    public int fieldsPerTable;
+
+    private SyntheticCatalog catalog;
+    private JdbcMetadataRepository repository;
+    private MetadataCatalog.Snapshot snapshot;
+    private int nextTable;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        catalog = new SyntheticCatalog(TABLES, fieldsPerTable);
+        repository = catalog.getRepository();
+        snapshot = catalog.loadSnapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException
+    {
+        catalog.close();
+    }
+
+    private int next()
+    {
+        nextTable = nextTable % TABLES + 1;
+        return nextTable;
+    }
+
+    @Benchmark
+    public List<GenField> mapResultRows() throws SQLException
+    {
+        return repository.loadFields(next(), new CancellableQuery());
+    }
+
+    @Benchmark
+    public void readCatalogViews(Blackhole bh)
+    {
+        for (FieldRow field : snapshot.getFields(next()))
+        {
+            bh.consume(field.getFieldName());
+            bh.consume(field.getFieldType());
+            bh.consume(field.getFieldLength());
+            bh.consume(field.getKeyFieldYn());
+        }
+    }
+
+    @Benchmark
+    public RecordLayout compileLayout()
+    {
+        int tableId = next();
+        return RecordLayout.compile(snapshot.getTable(tableId), snapshot.getFields(tableId));
+    }
+}
@@ -0,0 +1,66 @@
+package com.genowa.benchmarks;
+
+import com.genowa.model.GenTable;
+import com.genowa.service.MetadataCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering the table list as the user types: the Tables screen search over the catalog's
+ * indexes, and the substring predicate of the Add Table dialog on the insurance line screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark
+{
+    @Param({ "62", "2000", "20000" })
+    public int tables;
+
+    @Param({ "40" })
+    public int fieldsPerTable;
+
+    // A common word, a field name, a table id fragment and a miss
+    @Param({ "rate", "TERRITORY", "_12", "zzq" })
+    public String query;
+
+    private MetadataCatalog.Snapshot snapshot;
+    private String lowerCaseQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        try (SyntheticCatalog catalog = new SyntheticCatalog(tables, fieldsPerTable))
+        {
+            snapshot = catalog.loadSnapshot();
+        }
+        lowerCaseQuery = query.toLowerCase(Locale.ROOT);
+    }
+
+    @Benchmark
+    public MetadataCatalog.Search filterTables()
+    {
+        return snapshot.search(query);
+    }
+
+    @Benchmark
+    public List<GenTable> addTablePredicate()
+    {
+        List<GenTable> matches = new ArrayList<>();
+        for (GenTable table : snapshot.getTables())
+        {
+            if (table.containsText(lowerCaseQuery))
+            {
+                matches.add(table);
+            }
+        }
+        return matches;
+    }
+}
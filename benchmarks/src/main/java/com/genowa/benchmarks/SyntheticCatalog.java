@@ -0,0 +1,180 @@
+package com.genowa.benchmarks;
+
+import com.genowa.service.CatalogSnapshotFile;
+import com.genowa.service.ConnectionPool;
+import com.genowa.service.JdbcMetadataRepository;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.service.SqlDialect;
+import com.genowa.service.StringDictionary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database in the application's schema, seeded with {@code tables} generated
+ * tables of {@code fieldsPerTable} fields each.
+ *
+ * Names are built from a small vocabulary the way the legacy catalog's are, so searches
+ * and string sharing see realistic repetition. Table ids run from 1 to {@code tables}.
+ */
+final class SyntheticCatalog implements AutoCloseable
+{
+    private static final String[] LINES = { "AUTO", "HOME", "LIFE", "HEALTH", "UMBR", "FARM", "BOAT" };
+    private static final String[] KINDS = { "RATE", "FACTOR", "TERR", "DISC", "SURCH", "LIMIT", "CLASS" };
+    private static final String[] WORDS = { "TERRITORY", "BASE_RATE", "EFF_DATE", "EXP_DATE", "ZIP_CODE",
+        "CLASS_CODE", "SYMBOL", "LIMIT_AMT", "DEDUCT_AMT", "FACTOR", "STATE", "COVERAGE", "AGE_BAND", "MODEL_YEAR" };
+    private static final int BATCH_SIZE = 1000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final ConnectionPool pool;
+    private final StringDictionary strings = new StringDictionary();
+    private final JdbcMetadataRepository repository;
+    private final int tables;
+
+    SyntheticCatalog(int tables, int fieldsPerTable) throws SQLException
+    {
+        String url = "jdbc:h2:mem:catalog" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE";
+        this.pool = new ConnectionPool(url, "sa", "", 4, 64, 10_000, 60_000);
+        this.tables = tables;
+        seed(fieldsPerTable);
+        this.repository = new JdbcMetadataRepository("synthetic", pool, SqlDialect.H2, strings);
+    }
+
+    JdbcMetadataRepository getRepository()
+    {
+        return repository;
+    }
+
+    int getTableCount()
+    {
+        return tables;
+    }
+
+    /**
+     * Loads the whole catalog the way the application does at startup, with its snapshot
+     * file in a fresh temporary directory that is deleted again afterwards.
+     */
+    MetadataCatalog.Snapshot loadSnapshot() throws SQLException, IOException
+    {
+        Path dir = Files.createTempDirectory("genowa-bench");
+        try
+        {
+            // Loaded from the database, so nothing reads the snapshot file once it is written
+            return new MetadataCatalog(repository, strings, new CatalogSnapshotFile(dir.resolve("catalog.snapshot")))
+                .getSnapshot();
+        }
+        finally
+        {
+            BenchmarkFiles.deleteTree(dir);
+        }
+    }
+
+    static String tableName(int tableId)
+    {
+        return LINES[tableId % LINES.length] + "_" + KINDS[(tableId / LINES.length) % KINDS.length] + "_" + tableId;
+    }
+
+    static String fieldName(int seq)
+    {
+        return seq < WORDS.length ? WORDS[seq] : WORDS[seq % WORDS.length] + "_" + seq / WORDS.length;
+    }
+
+    private void seed(int fieldsPerTable) throws SQLException
+    {
+        try (Connection conn = pool.borrow())
+        {
+            try (Statement stmt = conn.createStatement())
+            {
+                stmt.execute("CREATE TABLE gen_tables (table_id INT PRIMARY KEY, table_name VARCHAR(100) NOT NULL, "
+                    + "table_desc VARCHAR(255), parent_table_id INT, level_type_code VARCHAR(50), key_length INT, "
+                    + "data_length INT, table_type VARCHAR(50), rate_table_type VARCHAR(50), has_detail_yn CHAR(1), "
+                    + "active_yn CHAR(1), created_by VARCHAR(50), created_date TIMESTAMP, modified_by VARCHAR(50), "
+                    + "modified_date TIMESTAMP)");
+                stmt.execute("CREATE INDEX idx_gen_tables_name ON gen_tables (table_name, table_id)");
+                stmt.execute("CREATE TABLE gen_fields (field_id INT PRIMARY KEY, table_id INT NOT NULL, "
+                    + "field_name VARCHAR(100) NOT NULL, field_desc VARCHAR(255), field_type VARCHAR(50), "
+                    + "field_length INT, field_decimal INT, seq_no INT, key_field_yn CHAR(1), required_yn CHAR(1), "
+                    + "active_yn CHAR(1), created_by VARCHAR(50), created_date TIMESTAMP, modified_by VARCHAR(50), "
+                    + "modified_date TIMESTAMP)");
+                stmt.execute("CREATE INDEX idx_gen_fields_table ON gen_fields (table_id, seq_no)");
+                stmt.execute("CREATE TABLE gen_ctl (ctl_type VARCHAR(50) NOT NULL, ctl_value VARCHAR(50))");
+                for (String line : LINES)
+                {
+                    stmt.execute("INSERT INTO gen_ctl VALUES ('INS_LINE', '" + line + "')");
+                }
+            }
+
+            Timestamp created = Timestamp.valueOf("2020-01-01 00:00:00");
+            int fieldId = 0;
+            try (PreparedStatement insertTable = conn.prepareStatement(
+                     "INSERT INTO gen_tables VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 'Y', 'seed', ?, 'seed', ?)");
+                 PreparedStatement insertField = conn.prepareStatement(
+                     "INSERT INTO gen_fields VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 'Y', 'Y', 'seed', ?, 'seed', ?)"))
+            {
+                for (int t = 1; t <= tables; t++)
+                {
+                    insertTable.setInt(1, t);
+                    insertTable.setString(2, tableName(t));
+                    insertTable.setString(3, LINES[t % LINES.length].toLowerCase(Locale.ROOT) + " "
+                        + KINDS[(t / LINES.length) % KINDS.length].toLowerCase(Locale.ROOT) + " table " + t);
+                    insertTable.setObject(4, t > LINES.length ? 1 + t % LINES.length : null);
+                    insertTable.setString(5, t % 3 == 0 ? "STATE" : "COUNTRY");
+                    insertTable.setInt(6, 6);
+                    insertTable.setObject(7, null);
+                    insertTable.setString(8, KINDS[(t / LINES.length) % KINDS.length]);
+                    insertTable.setString(9, t % 2 == 0 ? "BASE" : "FACTOR");
+                    insertTable.setString(10, "N");
+                    insertTable.setTimestamp(11, created);
+                    insertTable.setTimestamp(12, new Timestamp(created.getTime() + t * 1000L));
+                    insertTable.addBatch();
+
+                    for (int seq = 0; seq < fieldsPerTable; seq++)
+                    {
+                        // Key first, then a repeating mix of text, amounts and dates
+                        String type = seq == 0 ? "C" : seq % 4 == 1 ? "N" : seq % 4 == 2 ? "D" : "C";
+                        insertField.setInt(1, ++fieldId);
+                        insertField.setInt(2, t);
+                        insertField.setString(3, fieldName(seq));
+                        insertField.setString(4, seq % 5 == 0 ? null : "Generated field " + seq);
+                        insertField.setString(5, type);
+                        insertField.setInt(6, seq == 0 ? 6 : "N".equals(type) ? 9 : "D".equals(type) ? 8 : 4 + seq % 20);
+                        insertField.setObject(7, "N".equals(type) ? 2 : null);
+                        insertField.setInt(8, seq + 1);
+                        insertField.setString(9, seq == 0 ? "Y" : "N");
+                        insertField.setTimestamp(10, created);
+                        insertField.setTimestamp(11, new Timestamp(created.getTime() + fieldId * 1000L));
+                        insertField.addBatch();
+                        if (fieldId % BATCH_SIZE == 0)
+                        {
+                            insertField.executeBatch();
+                        }
+                    }
+                    if (t % BATCH_SIZE == 0)
+                    {
+                        insertTable.executeBatch();
+                    }
+                }
+                insertTable.executeBatch();
+                insertField.executeBatch();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement())
+        {
+            stmt.execute("SHUTDOWN");
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+}
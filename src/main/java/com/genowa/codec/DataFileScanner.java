@@ -0,0 +1,246 @@
+package com.genowa.codec;
+
+import com.genowa.metrics.QueryMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/**
+ * Scans a legacy fixed-width data file through memory-mapped regions.
+ *
+ * The file is never read onto the heap: each region is mapped with {@link FileChannel#map}
+ * and records are tested and handed to the visitor in place. Regions always start on a
+ * record boundary, which is also how {@link #parallelScan} splits the file across cores.
+ * Records may be followed by a line separator; {@link #open} detects LF and CRLF.
+ * Each scan is recorded in {@link QueryMetrics#getDefault()} as {@code datafile:<file name>},
+ * with its matches as rows and the bytes it mapped.
+ */
+public class DataFileScanner implements AutoCloseable
+{
+    // Regions are mapped this size or smaller (rounded down to whole records)
+    private static final long REGION_BYTES = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final String metricName;
+    private final RecordLayout layout;
+    private final int stride;
+    private final long fileSize;
+    private final long recordCount;
+
+    private DataFileScanner(FileChannel channel, String fileName, RecordLayout layout, int separatorLength)
+        throws IOException
+    {
+        this.channel = channel;
+        this.metricName = "datafile:" + fileName;
+        this.layout = layout;
+        this.stride = layout.getRecordLength() + separatorLength;
+        this.fileSize = channel.size();
+        // A final record without its trailing separator still counts
+        this.recordCount = fileSize / stride + (fileSize % stride >= layout.getRecordLength() ? 1 : 0);
+    }
+
+    public static DataFileScanner open(Path file, RecordLayout layout) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            return new DataFileScanner(channel, String.valueOf(file.getFileName()), layout,
+                detectSeparator(channel, layout.getRecordLength()));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int detectSeparator(FileChannel channel, int recordLength) throws IOException
+    {
+        if (channel.size() <= recordLength)
+        {
+            return 0;
+        }
+        ByteBuffer probe = ByteBuffer.allocate(2);
+        channel.read(probe, recordLength);
+        if (probe.get(0) == '\r' && probe.position() > 1 && probe.get(1) == '\n')
+        {
+            return 2;
+        }
+        return probe.get(0) == '\n' ? 1 : 0;
+    }
+
+    public RecordLayout getLayout()
+    {
+        return layout;
+    }
+
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Bytes from the start of one record to the next, separator included.
+     */
+    public int getStride()
+    {
+        return stride;
+    }
+
+    /**
+     * Visits matching records in file order. Returns the number of matches visited.
+     */
+    public long scan(RecordPredicate predicate, RecordVisitor visitor) throws IOException
+    {
+        long start = System.nanoTime();
+        LongAdder mapped = new LongAdder();
+        long matches = 0;
+        boolean failed = true;
+        try
+        {
+            matches = scanRange(0, recordCount, predicate, visitor, new AtomicBoolean(), mapped);
+            failed = false;
+            return matches;
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            QueryMetrics.getDefault().record(metricName, System.nanoTime() - start, matches, mapped.sum(), failed);
+        }
+    }
+
+    /**
+     * Visits matching records from all cores; the visitor must be thread-safe and sees
+     * records out of file order. Returns the number of matches visited.
+     */
+    public long parallelScan(RecordPredicate predicate, RecordVisitor visitor) throws IOException
+    {
+        long perRegion = recordsPerRegion();
+        long regions = (recordCount + perRegion - 1) / perRegion;
+        AtomicBoolean stop = new AtomicBoolean();
+        long start = System.nanoTime();
+        LongAdder mapped = new LongAdder();
+        long matches = 0;
+        boolean failed = true;
+        try
+        {
+            matches = LongStream.range(0, regions).parallel()
+                .map(r -> scanRange(r * perRegion, Math.min(recordCount, (r + 1) * perRegion), predicate, visitor,
+                    stop, mapped))
+                .sum();
+            failed = false;
+            return matches;
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            QueryMetrics.getDefault().record(metricName, System.nanoTime() - start, matches, mapped.sum(), failed);
+        }
+    }
+
+    /**
+     * Reads one record by number into {@code into}, which must hold at least a record, and
+     * returns it positioned at the start of the record. For random access, e.g. from a
+     * {@link KeyIndex}; use {@link #scan} to read many records in order.
+     */
+    public ByteBuffer read(long recordNumber, ByteBuffer into) throws IOException
+    {
+        if (recordNumber < 0 || recordNumber >= recordCount)
+        {
+            throw new IndexOutOfBoundsException("Record " + recordNumber + " of " + recordCount);
+        }
+        into.clear().limit(layout.getRecordLength());
+        long position = recordNumber * stride;
+        while (into.hasRemaining())
+        {
+            if (channel.read(into, position + into.position()) < 0)
+            {
+                throw new IOException("Unexpected end of file reading record " + recordNumber);
+            }
+        }
+        return into.flip();
+    }
+
+    /**
+     * Counts matching records in parallel.
+     */
+    public long count(RecordPredicate predicate) throws IOException
+    {
+        return parallelScan(predicate, (buf, record, number) -> true);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    private long recordsPerRegion()
+    {
+        long byBytes = Math.max(1, REGION_BYTES / stride);
+        // Enough regions to keep every core busy even on files smaller than one region
+        long byCores = Math.max(1, recordCount / (Runtime.getRuntime().availableProcessors() * 4L));
+        return Math.min(byBytes, byCores);
+    }
+
+    private long scanRange(long fromRecord, long toRecord, RecordPredicate predicate, RecordVisitor visitor,
+                           AtomicBoolean stop, LongAdder mapped)
+    {
+        long matches = 0;
+        long perRegion = Math.max(1, REGION_BYTES / stride);
+        for (long first = fromRecord; first < toRecord && !stop.get(); first += perRegion)
+        {
+            long last = Math.min(toRecord, first + perRegion);
+            MappedByteBuffer region = map(first, last);
+            mapped.add(region.capacity());
+            int count = (int) (last - first);
+            for (int i = 0; i < count; i++)
+            {
+                int record = i * stride;
+                if (predicate.test(region, record))
+                {
+                    matches++;
+                    if (!visitor.visit(region, record, first + i))
+                    {
+                        stop.set(true);
+                        return matches;
+                    }
+                }
+                if ((i & 0xFFF) == 0 && stop.get())
+                {
+                    return matches;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private MappedByteBuffer map(long firstRecord, long endRecord)
+    {
+        long start = firstRecord * stride;
+        // The final record may lack its separator, so never map past the end of the file
+        long length = Math.min((endRecord - firstRecord) * stride, fileSize - start);
+        try
+        {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
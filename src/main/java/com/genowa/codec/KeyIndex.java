@@ -0,0 +1,374 @@
+package com.genowa.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Sorted index from record key to record number, held off-heap in a memory-mapped file.
+ *
+ * The key is the record's key fields concatenated in layout order or, for layouts with no
+ * key fields flagged, its first key_length bytes. Entries are fixed width - key bytes then
+ * an 8-byte record number - and sorted by unsigned key bytes (ties in file order), so a
+ * lookup is a binary search over the mapping with no objects per entry. The index lives
+ * next to the data file as {@code <data>.kidx} and is re-mapped, not rebuilt, while the
+ * data file's size and modification time still match its header.
+ */
+public final class KeyIndex
+{
+    public static final String SUFFIX = ".kidx";
+
+    private static final int MAGIC = 0x474B4958; // "GKIX"
+    private static final int VERSION = 1;
+    // magic, version, record length, key width, entry count, data size, data modified
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final MappedByteBuffer entries;
+    private final int keyWidth;
+    private final int entryWidth;
+    private final int size;
+
+    private KeyIndex(MappedByteBuffer entries, int keyWidth, int size)
+    {
+        this.entries = entries;
+        this.keyWidth = keyWidth;
+        this.entryWidth = keyWidth + Long.BYTES;
+        this.size = size;
+    }
+
+    /**
+     * Maps the index stored next to {@code dataFile}, building (and storing) it first if it
+     * is missing or was built from a different version of the data file or layout.
+     */
+    public static KeyIndex openOrBuild(Path dataFile, RecordLayout layout) throws IOException
+    {
+        Path indexFile = indexFileFor(dataFile);
+        if (Files.exists(indexFile))
+        {
+            KeyIndex index = open(indexFile, dataFile, layout);
+            if (index != null)
+            {
+                return index;
+            }
+        }
+        return build(dataFile, layout);
+    }
+
+    public static Path indexFileFor(Path dataFile)
+    {
+        return dataFile.resolveSibling(dataFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Reads every key from {@code dataFile}, sorts them and writes {@code <data>.kidx}.
+     *
+     * @throws IllegalArgumentException if the layout has no key
+     */
+    public static KeyIndex build(Path dataFile, RecordLayout layout) throws IOException
+    {
+        int[] keyFields = layout.getKeyFields();
+        int keyWidth = keyWidth(layout, keyFields);
+        if (keyWidth == 0)
+        {
+            throw new IllegalArgumentException(layout.getTableName() + " has no key fields or key_length");
+        }
+
+        long start = System.nanoTime();
+        Path indexFile = indexFileFor(dataFile);
+        long dataSize = Files.size(dataFile);
+        long dataModified = Files.getLastModifiedTime(dataFile).toMillis();
+
+        try (DataFileScanner scanner = DataFileScanner.open(dataFile, layout))
+        {
+            long total = (long) HEADER_BYTES + scanner.getRecordCount() * (keyWidth + Long.BYTES);
+            if (total > Integer.MAX_VALUE)
+            {
+                throw new IOException(dataFile + " has too many records for a single key index");
+            }
+            int count = (int) scanner.getRecordCount();
+
+            // Gather keys off-heap in file order, then sort record numbers by key
+            ByteBuffer keys = ByteBuffer.allocateDirect(count * keyWidth);
+            scanner.parallelScan(RecordPredicate.all(), (buf, record, number) ->
+            {
+                copyKey(buf, record, layout, keyFields, keyWidth, keys, (int) number * keyWidth);
+                return true;
+            });
+            int[] order = sort(keys, keyWidth, count);
+
+            Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                MappedByteBuffer map = out.map(FileChannel.MapMode.READ_WRITE, 0, total);
+                map.putInt(MAGIC).putInt(VERSION).putInt(layout.getRecordLength()).putInt(keyWidth).putInt(count)
+                    .putLong(dataSize).putLong(dataModified);
+                int at = HEADER_BYTES;
+                for (int record : order)
+                {
+                    map.put(at, keys, record * keyWidth, keyWidth);
+                    map.putLong(at + keyWidth, record);
+                    at += keyWidth + Long.BYTES;
+                }
+                map.force();
+            }
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Key index built for " + dataFile.getFileName() + ": " + count + " keys in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+
+        KeyIndex index = open(indexFile, dataFile, layout);
+        if (index == null)
+        {
+            throw new IOException(dataFile + " changed while its key index was being built");
+        }
+        return index;
+    }
+
+    /**
+     * Maps an existing index file, or returns null if it does not match the data file or layout.
+     */
+    private static KeyIndex open(Path indexFile, Path dataFile, RecordLayout layout) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ))
+        {
+            if (channel.size() < HEADER_BYTES)
+            {
+                return null;
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int keyWidth = keyWidth(layout, layout.getKeyFields());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != layout.getRecordLength()
+                || map.getInt(12) != keyWidth
+                || map.getLong(20) != Files.size(dataFile)
+                || map.getLong(28) != Files.getLastModifiedTime(dataFile).toMillis())
+            {
+                return null;
+            }
+            int count = map.getInt(16);
+            if (channel.size() != HEADER_BYTES + (long) count * (keyWidth + Long.BYTES))
+            {
+                return null;
+            }
+            return new KeyIndex(map.slice(HEADER_BYTES, (int) channel.size() - HEADER_BYTES), keyWidth, count);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getKeyWidth()
+    {
+        return keyWidth;
+    }
+
+    /**
+     * Record number of the first record whose key equals {@code key} (blank padded to the
+     * key width), or -1 if there is none.
+     */
+    public long find(String key)
+    {
+        return find(pad(key.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    /**
+     * As {@link #find(String)} with the key already encoded to the full key width. A key
+     * longer than the key width matches nothing.
+     */
+    public long find(byte[] key)
+    {
+        if (key.length > keyWidth)
+        {
+            return -1;
+        }
+        int entry = lowerBound(key);
+        return entry < size && compare(entry, key) == 0 ? getRecordNumber(entry) : -1;
+    }
+
+    /**
+     * Position of the first entry whose key is not less than {@code probe}, comparing only
+     * the first {@code probe.length} key bytes.
+     */
+    public int lowerBound(byte[] probe)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, probe) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Position of the first entry whose key is greater than {@code probe}, comparing only
+     * the first {@code probe.length} key bytes.
+     */
+    public int upperBound(byte[] probe)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, probe) <= 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Passes the record number of every record whose key starts with {@code prefix} to
+     * {@code action}, in key order. Returns how many there were.
+     */
+    public int forEachWithPrefix(String prefix, LongConsumer action)
+    {
+        byte[] probe = prefix.getBytes(StandardCharsets.ISO_8859_1);
+        if (probe.length > keyWidth)
+        {
+            return 0;
+        }
+        int from = lowerBound(probe);
+        int to = upperBound(probe);
+        for (int entry = from; entry < to; entry++)
+        {
+            action.accept(getRecordNumber(entry));
+        }
+        return to - from;
+    }
+
+    /**
+     * Number of records whose key starts with {@code prefix}.
+     */
+    public int countWithPrefix(String prefix)
+    {
+        byte[] probe = prefix.getBytes(StandardCharsets.ISO_8859_1);
+        return probe.length > keyWidth ? 0 : upperBound(probe) - lowerBound(probe);
+    }
+
+    public long getRecordNumber(int entry)
+    {
+        return entries.getLong(entry * entryWidth + keyWidth);
+    }
+
+    private int compare(int entry, byte[] probe)
+    {
+        int pos = entry * entryWidth;
+        int length = Math.min(probe.length, keyWidth);
+        for (int i = 0; i < length; i++)
+        {
+            int diff = (entries.get(pos + i) & 0xFF) - (probe[i] & 0xFF);
+            if (diff != 0)
+            {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private byte[] pad(byte[] key)
+    {
+        if (key.length >= keyWidth)
+        {
+            return key;
+        }
+        byte[] padded = Arrays.copyOf(key, keyWidth);
+        Arrays.fill(padded, key.length, keyWidth, (byte) ' ');
+        return padded;
+    }
+
+    private static int keyWidth(RecordLayout layout, int[] keyFields)
+    {
+        if (keyFields.length == 0)
+        {
+            return Math.min(layout.getKeyLength(), layout.getRecordLength());
+        }
+        int width = 0;
+        for (int field : keyFields)
+        {
+            width += layout.getLength(field);
+        }
+        return width;
+    }
+
+    private static void copyKey(ByteBuffer buf, int record, RecordLayout layout, int[] keyFields, int keyWidth,
+                                ByteBuffer keys, int at)
+    {
+        if (keyFields.length == 0)
+        {
+            keys.put(at, buf, record, keyWidth);
+            return;
+        }
+        for (int field : keyFields)
+        {
+            int length = layout.getLength(field);
+            keys.put(at, buf, record + layout.getOffset(field), length);
+            at += length;
+        }
+    }
+
+    /**
+     * LSD radix sort of record numbers by their key bytes. Stable, so equal keys stay in
+     * file order; byte positions where every key agrees (blank padding) are skipped.
+     */
+    private static int[] sort(ByteBuffer keys, int keyWidth, int count)
+    {
+        int[] order = new int[count];
+        int[] scratch = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+        int[] buckets = new int[257];
+        for (int pos = keyWidth - 1; pos >= 0; pos--)
+        {
+            Arrays.fill(buckets, 0);
+            for (int i = 0; i < count; i++)
+            {
+                buckets[(keys.get(order[i] * keyWidth + pos) & 0xFF) + 1]++;
+            }
+            if (count == 0 || buckets[(keys.get(order[0] * keyWidth + pos) & 0xFF) + 1] == count)
+            {
+                continue;
+            }
+            for (int b = 1; b < buckets.length; b++)
+            {
+                buckets[b] += buckets[b - 1];
+            }
+            for (int i = 0; i < count; i++)
+            {
+                int record = order[i];
+                scratch[buckets[keys.get(record * keyWidth + pos) & 0xFF]++] = record;
+            }
+            int[] swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,407 @@
+package com.genowa.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes fields of fixed-width records directly in a {@link ByteBuffer}.
+ *
+ * Every method takes the buffer, the byte offset of the record within it and the field's
+ * position in the {@link RecordLayout}. Access is absolute, so the buffer's position is
+ * never touched and one codec can be shared by any number of threads. Numeric fields are
+ * ASCII digits with an implied decimal point ({@code field_decimal} places), optional
+ * leading/trailing sign or blanks, an optional explicit '.', and optional COBOL
+ * overpunched sign in the last byte. They decode to a scaled long without creating a
+ * String; only {@link #readString} and {@link #readDecimal} allocate. A value too large
+ * for a long is rejected, not wrapped; {@link #readDecimal} decodes it through BigDecimal.
+ */
+public final class RecordCodec
+{
+    private static final long[] POW10 = new long[RecordLayout.MAX_SCALE + 1];
+    // Largest value another digit can be appended to without overflowing a long
+    private static final long MAX_BEFORE_DIGIT = (Long.MAX_VALUE - 9) / 10;
+
+    static
+    {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+        {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final RecordLayout layout;
+
+    public RecordCodec(RecordLayout layout)
+    {
+        this.layout = layout;
+    }
+
+    public RecordLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Numeric value scaled by 10^scale - e.g. "001234" with 2 decimal places is 1234 (12.34).
+     *
+     * @throws NumberFormatException if the field holds anything but digits, signs, blanks or '.',
+     *                               or a value that does not fit a long once scaled
+     */
+    public long readUnscaled(ByteBuffer buf, int record, int field)
+    {
+        int pos = record + layout.getOffset(field);
+        int end = pos + layout.getLength(field);
+        int scale = layout.getScale(field);
+
+        long value = 0;
+        boolean negative = false;
+        int fraction = -1;
+        for (; pos < end; pos++)
+        {
+            int b = buf.get(pos) & 0xFF;
+            if (b >= '0' && b <= '9')
+            {
+                if (value > MAX_BEFORE_DIGIT)
+                {
+                    throw tooLarge(record, field);
+                }
+                value = value * 10 + (b - '0');
+                if (fraction >= 0)
+                {
+                    fraction++;
+                }
+            }
+            else if (b == ' ' || b == '+' || b == 0)
+            {
+                continue;
+            }
+            else if (b == '-')
+            {
+                negative = true;
+            }
+            else if (b == '.')
+            {
+                fraction = 0;
+            }
+            else if (pos == end - 1 && overpunchDigit(b) >= 0)
+            {
+                if (value > MAX_BEFORE_DIGIT)
+                {
+                    throw tooLarge(record, field);
+                }
+                value = value * 10 + overpunchDigit(b);
+                negative |= b == '}' || (b >= 'J' && b <= 'R');
+                if (fraction >= 0)
+                {
+                    fraction++;
+                }
+            }
+            else
+            {
+                throw unexpectedByte(b, record, field);
+            }
+        }
+
+        // An explicit decimal point overrides the implied one
+        if (fraction >= 0 && fraction != scale)
+        {
+            if (fraction > scale)
+            {
+                value = fraction - scale < POW10.length ? value / POW10[fraction - scale] : 0;
+            }
+            else if (scale - fraction >= POW10.length || value > Long.MAX_VALUE / POW10[scale - fraction])
+            {
+                throw tooLarge(record, field);
+            }
+            else
+            {
+                value = value * POW10[scale - fraction];
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    public long readLong(ByteBuffer buf, int record, int field)
+    {
+        int scale = layout.getScale(field);
+        long unscaled = readUnscaled(buf, record, field);
+        return scale == 0 ? unscaled : unscaled / POW10[scale];
+    }
+
+    public int readInt(ByteBuffer buf, int record, int field)
+    {
+        return Math.toIntExact(readLong(buf, record, field));
+    }
+
+    public double readDouble(ByteBuffer buf, int record, int field)
+    {
+        return (double) readUnscaled(buf, record, field) / POW10[layout.getScale(field)];
+    }
+
+    public BigDecimal readDecimal(ByteBuffer buf, int record, int field)
+    {
+        // Up to 18 digits fit a long, so only wider fields normally need the slow path
+        if (layout.getLength(field) < POW10.length)
+        {
+            try
+            {
+                return BigDecimal.valueOf(readUnscaled(buf, record, field), layout.getScale(field));
+            }
+            catch (NumberFormatException e)
+            {
+                // An explicit '.' with fewer places than the scale can still overflow once scaled.
+                // A bad byte fails again below, with the same message.
+            }
+        }
+        return readWideDecimal(buf, record, field);
+    }
+
+    /**
+     * As {@link #readUnscaled}, accumulating the digits as text so any width fits.
+     */
+    private BigDecimal readWideDecimal(ByteBuffer buf, int record, int field)
+    {
+        int pos = record + layout.getOffset(field);
+        int end = pos + layout.getLength(field);
+
+        StringBuilder digits = new StringBuilder(layout.getLength(field) + 1).append('0');
+        boolean negative = false;
+        int fraction = -1;
+        for (; pos < end; pos++)
+        {
+            int b = buf.get(pos) & 0xFF;
+            int digit;
+            if (b >= '0' && b <= '9')
+            {
+                digit = b - '0';
+            }
+            else if (b == ' ' || b == '+' || b == 0)
+            {
+                continue;
+            }
+            else if (b == '-')
+            {
+                negative = true;
+                continue;
+            }
+            else if (b == '.')
+            {
+                fraction = 0;
+                continue;
+            }
+            else if (pos == end - 1 && overpunchDigit(b) >= 0)
+            {
+                digit = overpunchDigit(b);
+                negative |= b == '}' || (b >= 'J' && b <= 'R');
+            }
+            else
+            {
+                throw unexpectedByte(b, record, field);
+            }
+            digits.append((char) ('0' + digit));
+            if (fraction >= 0)
+            {
+                fraction++;
+            }
+        }
+
+        BigDecimal value = new BigDecimal(new BigInteger(digits.toString()), Math.max(fraction, 0));
+        if (fraction < 0)
+        {
+            value = value.movePointLeft(layout.getScale(field));
+        }
+        else
+        {
+            // An explicit decimal point overrides the implied one; digits past the scale are dropped
+            value = value.setScale(layout.getScale(field), RoundingMode.DOWN);
+        }
+        return negative ? value.negate() : value;
+    }
+
+    /**
+     * Field text with trailing blanks removed.
+     */
+    public String readString(ByteBuffer buf, int record, int field)
+    {
+        int start = record + layout.getOffset(field);
+        int end = start + layout.getLength(field);
+        while (end > start && (buf.get(end - 1) == ' ' || buf.get(end - 1) == 0))
+        {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    public boolean isBlank(ByteBuffer buf, int record, int field)
+    {
+        int pos = record + layout.getOffset(field);
+        int end = pos + layout.getLength(field);
+        for (; pos < end; pos++)
+        {
+            byte b = buf.get(pos);
+            if (b != ' ' && b != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True if the field holds {@code value} followed only by blanks. Compares bytes in
+     * place; callers encode the value once (ISO-8859-1) and reuse it across records.
+     */
+    public boolean equalsBytes(ByteBuffer buf, int record, int field, byte[] value)
+    {
+        int pos = record + layout.getOffset(field);
+        int length = layout.getLength(field);
+        if (value.length > length)
+        {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++)
+        {
+            if (buf.get(pos + i) != value[i])
+            {
+                return false;
+            }
+        }
+        for (int i = value.length; i < length; i++)
+        {
+            byte b = buf.get(pos + i);
+            if (b != ' ' && b != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True if the field starts with {@code prefix}.
+     */
+    public boolean startsWith(ByteBuffer buf, int record, int field, byte[] prefix)
+    {
+        int pos = record + layout.getOffset(field);
+        if (prefix.length > layout.getLength(field))
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (buf.get(pos + i) != prefix[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a scaled value right-aligned and zero-padded, with a leading '-' if negative.
+     *
+     * @throws IllegalArgumentException if the value does not fit the field
+     */
+    public void writeUnscaled(ByteBuffer buf, int record, int field, long unscaled)
+    {
+        int start = record + layout.getOffset(field);
+        int length = layout.getLength(field);
+        boolean negative = unscaled < 0;
+        long value = Math.abs(unscaled);
+        int digits = negative ? length - 1 : length;
+
+        for (int pos = start + length - 1; pos >= start + length - digits; pos--)
+        {
+            buf.put(pos, (byte) ('0' + (value % 10)));
+            value /= 10;
+        }
+        if (value != 0 || unscaled == Long.MIN_VALUE)
+        {
+            throw new IllegalArgumentException(unscaled + " does not fit " + layout.getTableName() + "."
+                + layout.getName(field) + " (" + length + " bytes)");
+        }
+        if (negative)
+        {
+            buf.put(start, (byte) '-');
+        }
+    }
+
+    public void writeLong(ByteBuffer buf, int record, int field, long value)
+    {
+        writeUnscaled(buf, record, field, Math.multiplyExact(value, POW10[layout.getScale(field)]));
+    }
+
+    public void writeDecimal(ByteBuffer buf, int record, int field, BigDecimal value)
+    {
+        long unscaled = value.setScale(layout.getScale(field), RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        writeUnscaled(buf, record, field, unscaled);
+    }
+
+    /**
+     * Writes text left-aligned and blank-padded; characters outside ISO-8859-1 become '?'.
+     *
+     * @throws IllegalArgumentException if the text is longer than the field
+     */
+    public void writeString(ByteBuffer buf, int record, int field, CharSequence value)
+    {
+        int start = record + layout.getOffset(field);
+        int length = layout.getLength(field);
+        if (value.length() > length)
+        {
+            throw new IllegalArgumentException("'" + value + "' does not fit " + layout.getTableName() + "."
+                + layout.getName(field) + " (" + length + " bytes)");
+        }
+        for (int i = 0; i < length; i++)
+        {
+            char c = i < value.length() ? value.charAt(i) : ' ';
+            buf.put(start + i, (byte) (c <= 0xFF ? c : '?'));
+        }
+    }
+
+    /**
+     * Fills a whole record with blanks.
+     */
+    public void clear(ByteBuffer buf, int record)
+    {
+        for (int i = 0; i < layout.getRecordLength(); i++)
+        {
+            buf.put(record + i, (byte) ' ');
+        }
+    }
+
+    private NumberFormatException unexpectedByte(int b, int record, int field)
+    {
+        return new NumberFormatException(layout.getTableName() + "." + layout.getName(field)
+            + ": unexpected byte 0x" + Integer.toHexString(b) + " at record offset " + record);
+    }
+
+    private NumberFormatException tooLarge(int record, int field)
+    {
+        return new NumberFormatException(layout.getTableName() + "." + layout.getName(field)
+            + ": value at record offset " + record + " does not fit a long - read it with readDecimal");
+    }
+
+    // '{' and 'A'-'I' are +0..+9, '}' and 'J'-'R' are -0..-9
+    private static int overpunchDigit(int b)
+    {
+        if (b == '{' || b == '}')
+        {
+            return 0;
+        }
+        if (b >= 'A' && b <= 'I')
+        {
+            return b - 'A' + 1;
+        }
+        if (b >= 'J' && b <= 'R')
+        {
+            return b - 'J' + 1;
+        }
+        return -1;
+    }
+}
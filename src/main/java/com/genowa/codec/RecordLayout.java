@@ -0,0 +1,198 @@
+package com.genowa.codec;
+
+import com.genowa.model.FieldKind;
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+import com.genowa.model.YesNo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Byte layout of one legacy fixed-width record, compiled from a table's field list.
+ *
+ * Fields are laid out back to back in seq_no order, each {@code field_length} bytes wide.
+ * Offsets, widths, scales and kinds are held in parallel arrays indexed by field position,
+ * so codecs and scanners address a field with a couple of array reads.
+ */
+public final class RecordLayout
+{
+    /**
+     * Most decimal places a field may have - a scaled value is held in a long, which
+     * has 18 whole digits.
+     */
+    static final int MAX_SCALE = 18;
+
+    private final String tableName;
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] scales;
+    private final FieldKind[] kinds;
+    private final boolean[] keys;
+    private final int recordLength;
+    private final int keyLength;
+
+    private RecordLayout(String tableName, String[] names, int[] offsets, int[] lengths, int[] scales,
+                         FieldKind[] kinds, boolean[] keys, int recordLength, int keyLength)
+    {
+        this.tableName = tableName;
+        this.names = names;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.scales = scales;
+        this.kinds = kinds;
+        this.keys = keys;
+        this.recordLength = recordLength;
+        this.keyLength = keyLength;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a field has no length, its decimal places are outside
+     *                                  0-{@value #MAX_SCALE}, or the fields do not fit in the
+     *                                  table's data_length
+     */
+    public static RecordLayout compile(GenTable table, List<? extends FieldRow> fields)
+    {
+        List<FieldRow> ordered = new ArrayList<>(fields);
+        ordered.sort(Comparator.comparing(FieldRow::getSeqNo, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        int n = ordered.size();
+        String[] names = new String[n];
+        int[] offsets = new int[n];
+        int[] lengths = new int[n];
+        int[] scales = new int[n];
+        FieldKind[] kinds = new FieldKind[n];
+        boolean[] keys = new boolean[n];
+
+        int offset = 0;
+        int keyBytes = 0;
+        for (int i = 0; i < n; i++)
+        {
+            FieldRow field = ordered.get(i);
+            Integer length = field.getFieldLength();
+            if (length == null || length <= 0)
+            {
+                throw new IllegalArgumentException(table.getTableName() + "." + field.getFieldName()
+                    + " has no field_length");
+            }
+            names[i] = field.getFieldName();
+            offsets[i] = offset;
+            lengths[i] = length;
+            scales[i] = field.getDecimalPlaces() != null ? field.getDecimalPlaces() : 0;
+            if (scales[i] < 0 || scales[i] > MAX_SCALE)
+            {
+                throw new IllegalArgumentException(table.getTableName() + "." + field.getFieldName()
+                    + " has " + scales[i] + " decimal places - at most " + MAX_SCALE + " are supported");
+            }
+            kinds[i] = FieldKind.of(field);
+            keys[i] = YesNo.isYes(field.getKeyFieldYn());
+            if (keys[i])
+            {
+                keyBytes += length;
+            }
+            offset += length;
+        }
+
+        int recordLength = table.getDataLength() != null ? table.getDataLength() : offset;
+        if (offset > recordLength)
+        {
+            throw new IllegalArgumentException(table.getTableName() + " fields span " + offset
+                + " bytes but data_length is " + recordLength);
+        }
+        int keyLength = table.getKeyLength() != null ? table.getKeyLength() : keyBytes;
+        return new RecordLayout(table.getTableName(), names, offsets, lengths, scales, kinds, keys,
+            recordLength, keyLength);
+    }
+
+    public String getTableName()
+    {
+        return tableName;
+    }
+
+    public int getFieldCount()
+    {
+        return names.length;
+    }
+
+    /**
+     * Position of the named field (case-insensitive), or -1.
+     */
+    public int indexOf(String fieldName)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equalsIgnoreCase(fieldName))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getName(int field)
+    {
+        return names[field];
+    }
+
+    public int getOffset(int field)
+    {
+        return offsets[field];
+    }
+
+    public int getLength(int field)
+    {
+        return lengths[field];
+    }
+
+    public int getScale(int field)
+    {
+        return scales[field];
+    }
+
+    public FieldKind getKind(int field)
+    {
+        return kinds[field];
+    }
+
+    public boolean isKey(int field)
+    {
+        return keys[field];
+    }
+
+    public int getRecordLength()
+    {
+        return recordLength;
+    }
+
+    /**
+     * Key width: the table's key_length, or the total width of its key fields if unset.
+     */
+    public int getKeyLength()
+    {
+        return keyLength;
+    }
+
+    /**
+     * Positions of the key fields in layout order.
+     */
+    public int[] getKeyFields()
+    {
+        int count = 0;
+        for (boolean key : keys)
+        {
+            count += key ? 1 : 0;
+        }
+        int[] result = new int[count];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i])
+            {
+                result[n++] = i;
+            }
+        }
+        return result;
+    }
+}
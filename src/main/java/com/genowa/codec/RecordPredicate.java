@@ -0,0 +1,50 @@
+package com.genowa.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test applied to one record in place; {@code record} is its byte offset in {@code buf}.
+ */
+@FunctionalInterface
+public interface RecordPredicate
+{
+    boolean test(ByteBuffer buf, int record);
+
+    default RecordPredicate and(RecordPredicate other)
+    {
+        return (buf, record) -> test(buf, record) && other.test(buf, record);
+    }
+
+    static RecordPredicate all()
+    {
+        return (buf, record) -> true;
+    }
+
+    /**
+     * Text field equal to {@code value} (trailing blanks ignored).
+     */
+    static RecordPredicate fieldEquals(RecordCodec codec, int field, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        return (buf, record) -> codec.equalsBytes(buf, record, field, bytes);
+    }
+
+    static RecordPredicate fieldStartsWith(RecordCodec codec, int field, String prefix)
+    {
+        byte[] bytes = prefix.getBytes(StandardCharsets.ISO_8859_1);
+        return (buf, record) -> codec.startsWith(buf, record, field, bytes);
+    }
+
+    /**
+     * Numeric field within [min, max], both scaled by the field's decimal places.
+     */
+    static RecordPredicate fieldBetween(RecordCodec codec, int field, long minUnscaled, long maxUnscaled)
+    {
+        return (buf, record) ->
+        {
+            long value = codec.readUnscaled(buf, record, field);
+            return value >= minUnscaled && value <= maxUnscaled;
+        };
+    }
+}
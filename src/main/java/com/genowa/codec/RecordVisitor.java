@@ -0,0 +1,15 @@
+package com.genowa.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives matching records during a scan. The buffer is only valid during the call.
+ */
+@FunctionalInterface
+public interface RecordVisitor
+{
+    /**
+     * @return false to stop the scan
+     */
+    boolean visit(ByteBuffer buf, int record, long recordNumber);
+}
@@ -0,0 +1,92 @@
+package com.genowa.generator;
+
+import com.genowa.model.FieldKind;
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+import com.genowa.model.YesNo;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * C header with a packed fixed-width struct matching the legacy WARP_* record layout.
+ */
+public class CStructTemplate implements Template
+{
+    @Override
+    public String getId()
+    {
+        return "c-struct";
+    }
+
+    @Override
+    public String getVersion()
+    {
+        return "3";
+    }
+
+    @Override
+    public String getFileName(GenTable table)
+    {
+        return "c/" + Names.constant(table.getTableName()).toLowerCase(Locale.ROOT) + ".h";
+    }
+
+    @Override
+    public String render(GenTable table, List<FieldRow> fields)
+    {
+        String name = Names.constant(table.getTableName());
+        StringBuilder out = new StringBuilder(256 + fields.size() * 64);
+
+        out.append("/* Generated by Genowa - do not edit.\n");
+        out.append(" * ").append(Names.comment(table.getTableName()));
+        if (table.getTableDesc() != null && !table.getTableDesc().isEmpty())
+        {
+            out.append(" - ").append(Names.comment(table.getTableDesc()));
+        }
+        out.append("\n */\n");
+        out.append("#ifndef ").append(name).append("_H\n");
+        out.append("#define ").append(name).append("_H\n\n");
+
+        if (table.getKeyLength() != null)
+        {
+            out.append("#define ").append(name).append("_KEY_LENGTH ").append(table.getKeyLength()).append('\n');
+        }
+        if (table.getDataLength() != null)
+        {
+            out.append("#define ").append(name).append("_DATA_LENGTH ").append(table.getDataLength()).append('\n');
+        }
+        out.append('\n');
+
+        // The macros above are in scope inside the struct, so members must not reuse their names
+        Set<String> members = new HashSet<>(List.of(name, name + "_H", name + "_KEY_LENGTH", name + "_DATA_LENGTH"));
+        out.append("typedef struct\n{\n");
+        for (FieldRow field : fields)
+        {
+            int length = field.getFieldLength() != null && field.getFieldLength() > 0 ? field.getFieldLength() : 1;
+            out.append("    char ").append(Names.unique(Names.constant(field.getFieldName()), members))
+               .append('[').append(length).append("];");
+            out.append(" /* ").append(describe(field)).append(" */\n");
+        }
+        out.append("} ").append(name).append(";\n\n");
+        out.append("#endif\n");
+        return out.toString();
+    }
+
+    private static String describe(FieldRow field)
+    {
+        StringBuilder sb = new StringBuilder();
+        if (YesNo.isYes(field.getKeyFieldYn()))
+        {
+            sb.append("key, ");
+        }
+        FieldKind kind = FieldKind.of(field);
+        sb.append(kind);
+        if (kind == FieldKind.DECIMAL && field.getDecimalPlaces() != null)
+        {
+            sb.append('(').append(field.getFieldLength()).append(',').append(field.getDecimalPlaces()).append(')');
+        }
+        return sb.toString();
+    }
+}
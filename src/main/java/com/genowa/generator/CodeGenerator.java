@@ -0,0 +1,206 @@
+package com.genowa.generator;
+
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Generates source files from table definitions.
+ *
+ * Every (table, template) pair is an independent unit of work, run in parallel on a
+ * fork-join pool sized to the machine. The {@link GenerationManifest} in the output root
+ * skips pairs whose table, fields and template are unchanged since the last run, and
+ * files whose rendered content is identical are not rewritten. Files generated by an
+ * earlier run for tables no longer in the list are deleted.
+ */
+public class CodeGenerator
+{
+    private final List<Template> templates;
+    private final int parallelism;
+
+    public CodeGenerator(Template... templates)
+    {
+        this(Arrays.asList(templates), Runtime.getRuntime().availableProcessors());
+    }
+
+    public CodeGenerator(List<Template> templates, int parallelism)
+    {
+        this.templates = new ArrayList<>(templates);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param tables   every table to generate - output of any table left out is removed
+     * @param fieldsOf fields of a table by table id, in seq_no order - typically
+     *                 {@code MetadataCatalog.Snapshot::getFields}
+     * @param force    regenerate everything, ignoring the manifest
+     */
+    public Result generate(List<GenTable> tables, Function<Integer, List<FieldRow>> fieldsOf,
+                           Path outputDir, boolean force) throws IOException
+    {
+        long start = System.nanoTime();
+        GenerationManifest manifest = GenerationManifest.load(outputDir);
+        AtomicInteger generated = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        List<Runnable> work = new ArrayList<>(tables.size() * templates.size());
+        Map<String, String> owners = new HashMap<>();
+        for (GenTable table : tables)
+        {
+            for (Template template : templates)
+            {
+                // Names such as WARP_AUTO and WARP-AUTO convert to the same file - or to names differing
+                // only in case, the same file on Windows and macOS. The first table keeps it.
+                String fileName = template.getFileName(table);
+                String owner = owners.putIfAbsent(fileName.toLowerCase(Locale.ROOT), table.getTableName());
+                if (owner != null)
+                {
+                    failures.add(table.getTableName() + " [" + template.getId() + "]: " + fileName
+                        + " clashes with the output of " + owner);
+                    continue;
+                }
+                manifest.keep(template, table);
+                work.add(() ->
+                {
+                    try
+                    {
+                        List<FieldRow> fields = fieldsOf.apply(table.getTableId());
+                        Path output = outputDir.resolve(fileName);
+                        if (!force && manifest.isCurrent(template, table, fields, output))
+                        {
+                            unchanged.incrementAndGet();
+                            return;
+                        }
+                        write(output, template.render(table, fields));
+                        manifest.record(template, table, fields);
+                        generated.incrementAndGet();
+                    }
+                    catch (IOException | RuntimeException e)
+                    {
+                        failures.add(table.getTableName() + " [" + template.getId() + "]: " + e.getMessage());
+                    }
+                });
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            pool.submit(() -> work.parallelStream().forEach(Runnable::run)).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Generation interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException("Generation failed", e.getCause());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        int removed = removeStale(manifest, outputDir, failures);
+        manifest.save();
+        return new Result(generated.get(), unchanged.get(), removed, failures, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static int removeStale(GenerationManifest manifest, Path outputDir, List<String> failures)
+    {
+        int removed = 0;
+        for (String file : manifest.prune())
+        {
+            try
+            {
+                if (Files.deleteIfExists(outputDir.resolve(file)))
+                {
+                    removed++;
+                }
+            }
+            catch (IOException e)
+            {
+                failures.add(file + ": not removed - " + e.getMessage());
+            }
+        }
+        return removed;
+    }
+
+    private static void write(Path output, String content) throws IOException
+    {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (Files.exists(output) && Arrays.equals(Files.readAllBytes(output), bytes))
+        {
+            return;
+        }
+        Files.createDirectories(output.getParent());
+        Files.write(output, bytes);
+    }
+
+    public static final class Result
+    {
+        private final int generated;
+        private final int unchanged;
+        private final int removed;
+        private final List<String> failures;
+        private final long elapsedMillis;
+
+        Result(int generated, int unchanged, int removed, List<String> failures, long elapsedMillis)
+        {
+            this.generated = generated;
+            this.unchanged = unchanged;
+            this.removed = removed;
+            this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getGenerated()
+        {
+            return generated;
+        }
+
+        public int getUnchanged()
+        {
+            return unchanged;
+        }
+
+        public int getRemoved()
+        {
+            return removed;
+        }
+
+        public List<String> getFailures()
+        {
+            return failures;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return generated + " files generated, " + unchanged + " unchanged, " + removed + " removed, "
+                + failures.size() + " failed in " + elapsedMillis + " ms";
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.genowa.generator;
+
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers what each output file was generated from.
+ *
+ * An entry per (template, table) records the template version, the table's modified_date,
+ * a checksum of its field definitions and the output file. A table is regenerated only when
+ * one of those differs from the last run, or its output file is missing. {@link #prune()}
+ * drops the entries of tables no longer generated and reports the files of deleted or renamed
+ * tables, so they can be removed. Stored as a properties file in the output root.
+ */
+public class GenerationManifest
+{
+    static final String FILE_NAME = ".genowa-manifest";
+
+    private final Path file;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> loaded = new HashMap<>();
+    private final Map<String, String> kept = new HashMap<>();
+
+    private GenerationManifest(Path file)
+    {
+        this.file = file;
+    }
+
+    public static GenerationManifest load(Path outputDir) throws IOException
+    {
+        GenerationManifest manifest = new GenerationManifest(outputDir.resolve(FILE_NAME));
+        if (Files.exists(manifest.file))
+        {
+            Properties props = new Properties();
+            try (Reader reader = Files.newBufferedReader(manifest.file, StandardCharsets.UTF_8))
+            {
+                props.load(reader);
+            }
+            for (String key : props.stringPropertyNames())
+            {
+                manifest.entries.put(key, props.getProperty(key));
+                manifest.loaded.put(key, props.getProperty(key));
+            }
+        }
+        return manifest;
+    }
+
+    public boolean isCurrent(Template template, GenTable table, List<FieldRow> fields, Path output)
+    {
+        return Files.exists(output) && stamp(template, table, fields).equals(entries.get(key(template, table)));
+    }
+
+    public void record(Template template, GenTable table, List<FieldRow> fields)
+    {
+        entries.put(key(template, table), stamp(template, table, fields));
+    }
+
+    /**
+     * Marks the (template, table) pair as part of this run, whether or not it is regenerated.
+     */
+    public void keep(Template template, GenTable table)
+    {
+        kept.put(key(template, table), template.getFileName(table));
+    }
+
+    /**
+     * Drops the entries not {@link #keep kept} in this run and returns the output files no
+     * longer produced - those of dropped entries, and the old files of tables that were
+     * renamed. A file still produced by a kept pair is never returned.
+     */
+    public Set<String> prune()
+    {
+        Set<String> liveFiles = new HashSet<>(kept.values());
+        Set<String> staleFiles = new TreeSet<>();
+        for (Iterator<Map.Entry<String, String>> it = entries.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<String, String> entry = it.next();
+            if (!kept.containsKey(entry.getKey()))
+            {
+                it.remove();
+            }
+            String loadedFile = fileOf(loaded.get(entry.getKey()));
+            if (loadedFile != null && !liveFiles.contains(loadedFile))
+            {
+                staleFiles.add(loadedFile);
+            }
+        }
+        return staleFiles;
+    }
+
+    public void save() throws IOException
+    {
+        Properties props = new Properties();
+        // Sorted so the manifest diffs cleanly between runs
+        props.putAll(new TreeMap<>(entries));
+        Files.createDirectories(file.getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            props.store(writer, "Genowa generation manifest - do not edit");
+        }
+    }
+
+    private static String key(Template template, GenTable table)
+    {
+        return template.getId() + "." + table.getTableId();
+    }
+
+    private static String stamp(Template template, GenTable table, List<FieldRow> fields)
+    {
+        long modified = table.getModifiedDate() != null ? table.getModifiedDate().getTime() : 0L;
+        return template.getVersion() + "|" + modified + "|" + Long.toHexString(checksum(table, fields))
+            + "|" + template.getFileName(table);
+    }
+
+    // version|modified|checksum|file; manifests from before files were recorded have no fourth part
+    private static String fileOf(String stamp)
+    {
+        if (stamp == null)
+        {
+            return null;
+        }
+        String[] parts = stamp.split("\\|");
+        return parts.length >= 4 ? parts[parts.length - 1] : null;
+    }
+
+    // Field edits do not always touch the table's modified_date, so the definitions are checksummed too
+    private static long checksum(GenTable table, List<FieldRow> fields)
+    {
+        StringBuilder sb = new StringBuilder(64 + fields.size() * 48);
+        sb.append(table.getTableName()).append('|').append(table.getTableDesc())
+          .append('|').append(table.getKeyLength()).append('|').append(table.getDataLength());
+        for (FieldRow field : fields)
+        {
+            sb.append('\n').append(field.getFieldName()).append('|').append(field.getFieldType())
+              .append('|').append(field.getFieldLength()).append('|').append(field.getDecimalPlaces())
+              .append('|').append(field.getSeqNo()).append('|').append(field.getKeyFieldYn())
+              .append('|').append(field.getModifiedDate() != null ? field.getModifiedDate().getTime() : 0L);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,106 @@
+package com.genowa.generator;
+
+import com.genowa.model.FieldKind;
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Java record with one typed component per field.
+ */
+public class JavaRecordTemplate implements Template
+{
+    private final String packageName;
+
+    public JavaRecordTemplate(String packageName)
+    {
+        this.packageName = packageName;
+    }
+
+    @Override
+    public String getId()
+    {
+        return "java-record";
+    }
+
+    @Override
+    public String getVersion()
+    {
+        // The package is part of the output, so changing it must regenerate everything
+        return "3:" + packageName;
+    }
+
+    @Override
+    public String getFileName(GenTable table)
+    {
+        return "java/" + packageName.replace('.', '/') + "/" + Names.javaType(table.getTableName()) + ".java";
+    }
+
+    @Override
+    public String render(GenTable table, List<FieldRow> fields)
+    {
+        StringBuilder out = new StringBuilder(256 + fields.size() * 48);
+        out.append("package ").append(packageName).append(";\n\n");
+
+        boolean decimals = fields.stream().anyMatch(f -> FieldKind.of(f) == FieldKind.DECIMAL);
+        boolean dates = fields.stream().anyMatch(f -> FieldKind.of(f) == FieldKind.DATE);
+        if (decimals)
+        {
+            out.append("import java.math.BigDecimal;\n");
+        }
+        if (dates)
+        {
+            out.append("import java.time.LocalDate;\n");
+        }
+        if (decimals || dates)
+        {
+            out.append('\n');
+        }
+
+        out.append("/**\n * Generated by Genowa from ").append(Names.javaComment(table.getTableName())).append(" - do not edit.\n");
+        if (table.getTableDesc() != null && !table.getTableDesc().isEmpty())
+        {
+            out.append(" * ").append(Names.javaComment(table.getTableDesc())).append('\n');
+        }
+        out.append(" */\n");
+        out.append("public record ").append(Names.javaType(table.getTableName())).append("(");
+
+        Set<String> members = new HashSet<>();
+
+        for (int i = 0; i < fields.size(); i++)
+        {
+            FieldRow field = fields.get(i);
+            out.append(i == 0 ? "\n" : ",\n");
+            out.append("    ").append(javaType(field)).append(' ').append(Names.unique(Names.javaMember(field.getFieldName()), members));
+        }
+        out.append(")\n{\n");
+        if (table.getKeyLength() != null)
+        {
+            out.append("    public static final int KEY_LENGTH = ").append(table.getKeyLength()).append(";\n");
+        }
+        if (table.getDataLength() != null)
+        {
+            out.append("    public static final int DATA_LENGTH = ").append(table.getDataLength()).append(";\n");
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private static String javaType(FieldRow field)
+    {
+        switch (FieldKind.of(field))
+        {
+            case INTEGER:
+                return field.getFieldLength() != null && field.getFieldLength() <= 9 ? "int" : "long";
+            case DECIMAL:
+                return "BigDecimal";
+            case DATE:
+                return "LocalDate";
+            default:
+                return "String";
+        }
+    }
+}
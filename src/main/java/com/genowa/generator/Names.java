@@ -0,0 +1,137 @@
+package com.genowa.generator;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Identifier conversions for generated code. Identifiers are ASCII only - any other
+ * character, including non-ASCII letters, acts as a word separator.
+ */
+final class Names
+{
+    // Keywords, literals and restricted identifiers, which cannot name a record component
+    private static final Set<String> JAVA_KEYWORDS = Set.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "true", "false", "null", "_", "var", "yield", "record", "sealed", "permits");
+
+    // Object's no-argument methods, which a record component's accessor would clash with
+    private static final Set<String> OBJECT_METHODS = Set.of(
+        "clone", "finalize", "getClass", "hashCode", "notify", "notifyAll", "toString", "wait");
+
+    // Types a generated record refers to by simple name, which the record itself must not shadow
+    private static final Set<String> JAVA_TYPES = Set.of("BigDecimal", "LocalDate", "Object", "Record", "String");
+
+    private Names()
+    {
+    }
+
+    /**
+     * WARP_AUTO_RATE -> WARP_AUTO_RATE; anything that is not an ASCII letter, digit or underscore becomes '_'.
+     */
+    static String constant(String name)
+    {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (char c : name.trim().toUpperCase(Locale.ROOT).toCharArray())
+        {
+            sb.append(isAsciiLetterOrDigit(c) ? c : '_');
+        }
+        if (sb.length() == 0 || Character.isDigit(sb.charAt(0)))
+        {
+            sb.insert(0, '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * WARP_AUTO_RATE -> WarpAutoRate
+     */
+    static String type(String name)
+    {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = true;
+        for (char c : name.trim().toCharArray())
+        {
+            if (!isAsciiLetterOrDigit(c))
+            {
+                upper = true;
+                continue;
+            }
+            sb.append(upper ? Character.toUpperCase(c) : Character.toLowerCase(c));
+            upper = false;
+        }
+        if (sb.length() == 0 || Character.isDigit(sb.charAt(0)))
+        {
+            sb.insert(0, '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * BASE_PREM -> basePrem
+     */
+    static String member(String name)
+    {
+        String type = type(name);
+        return Character.toLowerCase(type.charAt(0)) + type.substring(1);
+    }
+
+    /**
+     * {@link #type} as the name of a Java class: Record -> Record_
+     */
+    static String javaType(String name)
+    {
+        String type = type(name);
+        return JAVA_TYPES.contains(type) ? type + "_" : type;
+    }
+
+    /**
+     * {@link #member} as the name of a record component: CLASS -> class_, WAIT -> wait_
+     */
+    static String javaMember(String name)
+    {
+        String member = member(name);
+        return JAVA_KEYWORDS.contains(member) || OBJECT_METHODS.contains(member) ? member + "_" : member;
+    }
+
+    /**
+     * Returns {@code name}, or the first of name_2, name_3... not already in {@code used},
+     * and adds it to {@code used}. Keeps distinct fields that convert to the same identifier,
+     * such as BASE_PREM and BASEPREM, apart.
+     */
+    static String unique(String name, Set<String> used)
+    {
+        String candidate = name;
+        for (int n = 2; !used.add(candidate); n++)
+        {
+            candidate = name + "_" + n;
+        }
+        return candidate;
+    }
+
+    /**
+     * Text for one line of a block comment: line breaks become spaces and {@code *}{@code /}
+     * becomes {@code * /}, so definitions cannot end the comment early.
+     */
+    static String comment(String text)
+    {
+        return text.replace("\r\n", " ").replace('\r', ' ').replace('\n', ' ').replace("*/", "* /");
+    }
+
+    /**
+     * {@link #comment} for Java source, where a unicode escape such as {@code \}{@code u002a}
+     * is decoded even inside comments. Doubling the backslash keeps it literal.
+     */
+    static String javaComment(String text)
+    {
+        return comment(text).replace("\\u", "\\\\u");
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+}
@@ -0,0 +1,30 @@
+package com.genowa.generator;
+
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.util.List;
+
+/**
+ * Turns one table definition into one generated source file.
+ */
+public interface Template
+{
+    /**
+     * Stable identifier, used to key the generation manifest.
+     */
+    String getId();
+
+    /**
+     * Changes whenever the template's output would change for the same input, so a new
+     * version forces regeneration of every table.
+     */
+    String getVersion();
+
+    /**
+     * Output path relative to the generation root.
+     */
+    String getFileName(GenTable table);
+
+    String render(GenTable table, List<FieldRow> fields);
+}
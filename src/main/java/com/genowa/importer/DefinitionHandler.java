@@ -0,0 +1,20 @@
+package com.genowa.importer;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import java.sql.SQLException;
+
+/**
+ * Receives definitions as {@link LegacyDefinitionReader} parses them. Each field belongs
+ * to the table most recently passed to {@link #table}.
+ */
+public interface DefinitionHandler
+{
+    /**
+     * @param parentName the parent table's name, or null for a top-level table
+     */
+    void table(GenTable table, String parentName) throws SQLException;
+
+    void field(GenField field) throws SQLException;
+}
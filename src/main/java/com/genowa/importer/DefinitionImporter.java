@@ -0,0 +1,610 @@
+package com.genowa.importer;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+import com.genowa.service.DatabaseService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Imports legacy definition files (see {@link LegacyDefinitionReader}) into gen_tables and
+ * gen_fields.
+ *
+ * Rows are written with JDBC batches of {@code batchSize} statements and committed every
+ * {@code transactionRows} rows, so a full catalog goes in with a handful of round trips
+ * and no transaction grows without bound. Ids are assigned from the current maximum, so
+ * fields can be batched without reading generated keys back. A table whose name already
+ * exists keeps its table_id: with {@code replaceExisting} its row is updated (all but
+ * created_by) and its fields replaced, otherwise it is skipped. Optional columns (see README) are written
+ * only where the schema has them. Every row written gets modified_date and modified_by,
+ * where present, so a replaced table changes the catalog's stamp even when its row
+ * counts stay the same.
+ *
+ * If an import fails, the open transaction is rolled back; earlier transactions stay
+ * committed, and importing the same file again with replaceExisting completes it.
+ */
+public class DefinitionImporter
+{
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_TRANSACTION_ROWS = 5_000;
+
+    private static final String IMPORTED_BY = "import";
+
+    private static final List<Column<GenTable>> TABLE_COLUMNS = List.of(
+        Column.text("table_desc", GenTable::getTableDesc),
+        Column.text("table_type", GenTable::getTableType),
+        Column.number("key_length", GenTable::getKeyLength),
+        Column.number("data_length", GenTable::getDataLength),
+        Column.number("parent_table_id", GenTable::getParentTableId),
+        Column.text("level_type_code", GenTable::getLevelTypeCode),
+        Column.text("rate_table_type", GenTable::getRateTableType),
+        Column.text("has_detail_yn", GenTable::getHasDetailYn),
+        Column.text("active_yn", GenTable::getActiveYn),
+        Column.text("created_by", GenTable::getCreatedBy),
+        Column.text("modified_by", GenTable::getModifiedBy));
+
+    private static final List<Column<GenField>> FIELD_COLUMNS = List.of(
+        Column.text("field_desc", GenField::getFieldDesc),
+        Column.text("field_type", GenField::getFieldType),
+        Column.number("field_length", GenField::getFieldLength),
+        Column.number("field_decimal", GenField::getDecimalPlaces),
+        Column.number("seq_no", GenField::getSeqNo),
+        Column.text("key_field_yn", GenField::getKeyFieldYn),
+        Column.text("required_yn", GenField::getRequiredYn),
+        Column.text("active_yn", GenField::getActiveYn),
+        Column.text("created_by", GenField::getCreatedBy),
+        Column.text("modified_by", GenField::getModifiedBy));
+
+    private final DatabaseService dbService;
+    private final int batchSize;
+    private final int transactionRows;
+    private final boolean replaceExisting;
+
+    public DefinitionImporter(DatabaseService dbService)
+    {
+        this(dbService, DEFAULT_BATCH_SIZE, DEFAULT_TRANSACTION_ROWS, true);
+    }
+
+    public DefinitionImporter(DatabaseService dbService, int batchSize, int transactionRows, boolean replaceExisting)
+    {
+        if (batchSize < 1 || transactionRows < 1)
+        {
+            throw new IllegalArgumentException("batchSize and transactionRows must be positive");
+        }
+        this.dbService = dbService;
+        this.batchSize = batchSize;
+        this.transactionRows = transactionRows;
+        this.replaceExisting = replaceExisting;
+    }
+
+    /**
+     * Imports one definition file. Blocks on the database - call from a background thread.
+     */
+    public Result importFile(Path file) throws IOException, SQLException
+    {
+        try (Connection conn = dbService.getConnection())
+        {
+            return importFile(conn, file);
+        }
+    }
+
+    Result importFile(Connection conn, Path file) throws IOException, SQLException
+    {
+        long start = System.nanoTime();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Session session = new Session(conn))
+        {
+            new LegacyDefinitionReader().read(file, session);
+            session.finish();
+            Result result = session.result(System.nanoTime() - start);
+            System.out.println("Imported " + file.getFileName() + ": " + result);
+            return result;
+        }
+        catch (IOException | SQLException | RuntimeException e)
+        {
+            conn.rollback();
+            throw e;
+        }
+        finally
+        {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Command-line import: {@code DefinitionImporter <file>...}
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: DefinitionImporter <definition file>...");
+            System.exit(2);
+        }
+        try
+        {
+            DefinitionImporter importer = new DefinitionImporter(DatabaseService.getInstance());
+            for (String arg : args)
+            {
+                importer.importFile(Path.of(arg));
+            }
+        }
+        finally
+        {
+            DatabaseService.shutdown();
+        }
+    }
+
+    private static Set<String> columnsOf(Connection conn, String table) throws SQLException
+    {
+        Set<String> columns = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0"))
+        {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++)
+            {
+                columns.add(meta.getColumnLabel(i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return columns;
+    }
+
+    private static <T> List<Column<T>> present(List<Column<T>> columns, Set<String> schema)
+    {
+        List<Column<T>> result = new ArrayList<>();
+        for (Column<T> column : columns)
+        {
+            if (schema.contains(column.name))
+            {
+                result.add(column);
+            }
+        }
+        return result;
+    }
+
+    private static <T> List<Column<T>> without(List<Column<T>> columns, String name)
+    {
+        List<Column<T>> result = new ArrayList<>(columns);
+        result.removeIf(column -> column.name.equals(name));
+        return result;
+    }
+
+    private static String names(List<? extends Column<?>> columns, String suffix)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Column<?> column : columns)
+        {
+            sb.append(", ").append(column.name).append(suffix);
+        }
+        return sb.toString();
+    }
+
+    private static String placeholders(int count)
+    {
+        return ", ?".repeat(count);
+    }
+
+    /**
+     * State of one import: open statements, pending batch sizes and id assignment.
+     */
+    private final class Session implements DefinitionHandler, AutoCloseable
+    {
+        private final Connection conn;
+        private final List<Column<GenTable>> tableColumns;
+        private final List<Column<GenTable>> updateColumns;
+        private final List<Column<GenTable>> updateColumnsKeepingParent;
+        private final List<Column<GenField>> fieldColumns;
+        private final boolean hasParent;
+        // ", modified_date" and its value, or empty if the table has no such column
+        private final String tableStamp;
+        private final String tableStampValue;
+        private final String fieldStamp;
+        private final String fieldStampValue;
+        private final PreparedStatement insertTable;
+        private final PreparedStatement updateTable;
+        // For a table whose parent is not imported yet - finish() sets parent_table_id
+        private final PreparedStatement updateTableKeepingParent;
+        private final PreparedStatement deleteFields;
+        private final PreparedStatement insertField;
+
+        private final Map<String, Integer> idsByName = new HashMap<>();
+        private final Set<String> imported = new HashSet<>();
+        private final Map<Integer, String> unresolvedParents = new LinkedHashMap<>();
+        private int nextTableId;
+        private int nextFieldId;
+        private int currentTableId;
+        private boolean skippingTable;
+
+        private int pendingTables;
+        private int pendingUpdates;
+        private int pendingUpdatesKeepingParent;
+        private int pendingDeletes;
+        private int pendingFields;
+        private int uncommittedRows;
+
+        private int tablesInserted;
+        private int tablesReplaced;
+        private int tablesSkipped;
+        private int fieldsInserted;
+        private int transactions;
+
+        Session(Connection conn) throws SQLException
+        {
+            this.conn = conn;
+            Set<String> tableSchema = columnsOf(conn, "gen_tables");
+            Set<String> fieldSchema = columnsOf(conn, "gen_fields");
+            tableColumns = present(TABLE_COLUMNS, tableSchema);
+            // created_by records who first imported a table, so a replace leaves it alone
+            updateColumns = without(tableColumns, "created_by");
+            updateColumnsKeepingParent = without(updateColumns, "parent_table_id");
+            fieldColumns = present(FIELD_COLUMNS, fieldSchema);
+            hasParent = tableSchema.contains("parent_table_id");
+            tableStamp = tableSchema.contains("modified_date") ? ", modified_date" : "";
+            tableStampValue = tableStamp.isEmpty() ? "" : ", CURRENT_TIMESTAMP";
+            fieldStamp = fieldSchema.contains("modified_date") ? ", modified_date" : "";
+            fieldStampValue = fieldStamp.isEmpty() ? "" : ", CURRENT_TIMESTAMP";
+
+            try (Statement stmt = conn.createStatement())
+            {
+                try (ResultSet rs = stmt.executeQuery("SELECT table_id, table_name FROM gen_tables"))
+                {
+                    while (rs.next())
+                    {
+                        idsByName.put(rs.getString(2), rs.getInt(1));
+                        nextTableId = Math.max(nextTableId, rs.getInt(1));
+                    }
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(field_id) FROM gen_fields"))
+                {
+                    nextFieldId = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+            nextTableId++;
+            nextFieldId++;
+
+            insertTable = conn.prepareStatement("INSERT INTO gen_tables (table_id, table_name"
+                + names(tableColumns, "") + tableStamp + ") VALUES (?, ?" + placeholders(tableColumns.size())
+                + tableStampValue + ")");
+            updateTable = prepareUpdate(updateColumns);
+            updateTableKeepingParent = hasParent ? prepareUpdate(updateColumnsKeepingParent) : null;
+            deleteFields = conn.prepareStatement("DELETE FROM gen_fields WHERE table_id = ?");
+            insertField = conn.prepareStatement("INSERT INTO gen_fields (field_id, table_id, field_name"
+                + names(fieldColumns, "") + fieldStamp + ") VALUES (?, ?, ?" + placeholders(fieldColumns.size())
+                + fieldStampValue + ")");
+        }
+
+        private PreparedStatement prepareUpdate(List<Column<GenTable>> columns) throws SQLException
+        {
+            String updates = names(columns, " = ?") + (tableStamp.isEmpty() ? "" : tableStamp + " = CURRENT_TIMESTAMP");
+            return updates.isEmpty() ? null : conn.prepareStatement("UPDATE gen_tables SET "
+                + updates.substring(2) + " WHERE table_id = ?");
+        }
+
+        @Override
+        public void table(GenTable table, String parentName) throws SQLException
+        {
+            String name = table.getTableName();
+            if (!imported.add(name))
+            {
+                throw new IllegalArgumentException("table " + name + " is defined twice");
+            }
+            table.setCreatedBy(IMPORTED_BY);
+            table.setModifiedBy(IMPORTED_BY);
+            Integer existing = idsByName.get(name);
+            if (existing != null && !replaceExisting)
+            {
+                skippingTable = true;
+                tablesSkipped++;
+                return;
+            }
+            skippingTable = false;
+            currentTableId = existing != null ? existing : nextTableId++;
+            idsByName.put(name, currentTableId);
+
+            boolean parentPending = false;
+            if (hasParent && parentName != null)
+            {
+                Integer parentId = idsByName.get(parentName);
+                if (parentId != null)
+                {
+                    table.setParentTableId(parentId);
+                }
+                else
+                {
+                    // Parent defined further down the file; linked once every table has an id
+                    unresolvedParents.put(currentTableId, parentName);
+                    parentPending = true;
+                }
+            }
+
+            if (existing != null)
+            {
+                if (parentPending)
+                {
+                    // Keep the current link rather than clear it until finish()
+                    if (updateTableKeepingParent != null)
+                    {
+                        int i = bind(updateTableKeepingParent, 1, updateColumnsKeepingParent, table);
+                        updateTableKeepingParent.setInt(i, currentTableId);
+                        updateTableKeepingParent.addBatch();
+                        pendingUpdatesKeepingParent++;
+                    }
+                }
+                else if (updateTable != null)
+                {
+                    int i = bind(updateTable, 1, updateColumns, table);
+                    updateTable.setInt(i, currentTableId);
+                    updateTable.addBatch();
+                    pendingUpdates++;
+                }
+                deleteFields.setInt(1, currentTableId);
+                deleteFields.addBatch();
+                pendingDeletes++;
+                tablesReplaced++;
+            }
+            else
+            {
+                insertTable.setInt(1, currentTableId);
+                insertTable.setString(2, name);
+                bind(insertTable, 3, tableColumns, table);
+                insertTable.addBatch();
+                pendingTables++;
+                tablesInserted++;
+            }
+            added();
+        }
+
+        @Override
+        public void field(GenField field) throws SQLException
+        {
+            if (skippingTable)
+            {
+                return;
+            }
+            field.setCreatedBy(IMPORTED_BY);
+            field.setModifiedBy(IMPORTED_BY);
+            insertField.setInt(1, nextFieldId++);
+            insertField.setInt(2, currentTableId);
+            insertField.setString(3, field.getFieldName());
+            bind(insertField, 4, fieldColumns, field);
+            insertField.addBatch();
+            pendingFields++;
+            fieldsInserted++;
+            added();
+        }
+
+        void finish() throws SQLException
+        {
+            flush();
+            if (!unresolvedParents.isEmpty())
+            {
+                try (PreparedStatement link = conn.prepareStatement("UPDATE gen_tables SET parent_table_id = ?"
+                    + (tableStamp.isEmpty() ? "" : tableStamp + " = CURRENT_TIMESTAMP") + " WHERE table_id = ?"))
+                {
+                    for (Map.Entry<Integer, String> entry : unresolvedParents.entrySet())
+                    {
+                        Integer parentId = idsByName.get(entry.getValue());
+                        if (parentId == null)
+                        {
+                            // Cleared, as a table with no parent would be
+                            System.err.println("Import: parent table " + entry.getValue() + " not found");
+                            link.setNull(1, Types.INTEGER);
+                        }
+                        else
+                        {
+                            link.setInt(1, parentId);
+                        }
+                        link.setInt(2, entry.getKey());
+                        link.addBatch();
+                    }
+                    link.executeBatch();
+                }
+            }
+            commit();
+        }
+
+        Result result(long elapsedNanos)
+        {
+            return new Result(tablesInserted, tablesReplaced, tablesSkipped, fieldsInserted, transactions,
+                elapsedNanos / 1_000_000);
+        }
+
+        private void added() throws SQLException
+        {
+            uncommittedRows++;
+            if (pendingTables + pendingUpdates + pendingUpdatesKeepingParent + pendingDeletes + pendingFields >= batchSize)
+            {
+                flush();
+            }
+            if (uncommittedRows >= transactionRows)
+            {
+                commit();
+            }
+        }
+
+        // Tables before fields, and old fields deleted before new ones go in
+        private void flush() throws SQLException
+        {
+            if (pendingTables > 0)
+            {
+                insertTable.executeBatch();
+            }
+            if (pendingUpdates > 0)
+            {
+                updateTable.executeBatch();
+            }
+            if (pendingUpdatesKeepingParent > 0)
+            {
+                updateTableKeepingParent.executeBatch();
+            }
+            if (pendingDeletes > 0)
+            {
+                deleteFields.executeBatch();
+            }
+            if (pendingFields > 0)
+            {
+                insertField.executeBatch();
+            }
+            pendingTables = pendingUpdates = pendingUpdatesKeepingParent = pendingDeletes = pendingFields = 0;
+        }
+
+        private void commit() throws SQLException
+        {
+            flush();
+            conn.commit();
+            uncommittedRows = 0;
+            transactions++;
+        }
+
+        private <T> int bind(PreparedStatement stmt, int index, List<Column<T>> columns, T row) throws SQLException
+        {
+            for (Column<T> column : columns)
+            {
+                column.bind(stmt, index++, row);
+            }
+            return index;
+        }
+
+        @Override
+        public void close() throws SQLException
+        {
+            PreparedStatement[] statements = { insertTable, updateTable, updateTableKeepingParent, deleteFields, insertField };
+            for (PreparedStatement stmt : statements)
+            {
+                if (stmt != null)
+                {
+                    stmt.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * One optional column: its name, how to read it from a row, and its SQL type.
+     */
+    private static final class Column<T>
+    {
+        private final String name;
+        private final Function<T, Object> getter;
+        private final int sqlType;
+
+        private Column(String name, Function<T, Object> getter, int sqlType)
+        {
+            this.name = name;
+            this.getter = getter;
+            this.sqlType = sqlType;
+        }
+
+        static <T> Column<T> text(String name, Function<T, String> getter)
+        {
+            return new Column<>(name, getter::apply, Types.VARCHAR);
+        }
+
+        static <T> Column<T> number(String name, Function<T, Integer> getter)
+        {
+            return new Column<>(name, getter::apply, Types.INTEGER);
+        }
+
+        void bind(PreparedStatement stmt, int index, T row) throws SQLException
+        {
+            Object value = getter.apply(row);
+            if (value == null)
+            {
+                stmt.setNull(index, sqlType);
+            }
+            else if (sqlType == Types.INTEGER)
+            {
+                stmt.setInt(index, (Integer) value);
+            }
+            else
+            {
+                stmt.setString(index, (String) value);
+            }
+        }
+    }
+
+    /**
+     * Counts and timing of one import.
+     */
+    public static final class Result
+    {
+        private final int tablesInserted;
+        private final int tablesReplaced;
+        private final int tablesSkipped;
+        private final int fieldsInserted;
+        private final int transactions;
+        private final long elapsedMillis;
+
+        Result(int tablesInserted, int tablesReplaced, int tablesSkipped, int fieldsInserted, int transactions,
+               long elapsedMillis)
+        {
+            this.tablesInserted = tablesInserted;
+            this.tablesReplaced = tablesReplaced;
+            this.tablesSkipped = tablesSkipped;
+            this.fieldsInserted = fieldsInserted;
+            this.transactions = transactions;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getTablesInserted()
+        {
+            return tablesInserted;
+        }
+
+        public int getTablesReplaced()
+        {
+            return tablesReplaced;
+        }
+
+        public int getTablesSkipped()
+        {
+            return tablesSkipped;
+        }
+
+        public int getFieldsInserted()
+        {
+            return fieldsInserted;
+        }
+
+        public int getTransactions()
+        {
+            return transactions;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        /**
+         * Table and field rows written per second.
+         */
+        public double getRowsPerSecond()
+        {
+            int rows = tablesInserted + tablesReplaced + fieldsInserted;
+            return elapsedMillis == 0 ? rows * 1000.0 : rows * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d tables new, %d replaced, %d skipped; %d fields in %d ms "
+                    + "(%.0f rows/s, %d transactions)",
+                tablesInserted, tablesReplaced, tablesSkipped, fieldsInserted, elapsedMillis,
+                getRowsPerSecond(), transactions);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.genowa.importer;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+import com.genowa.model.YesNo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Streaming parser for legacy WARP_* definition exports.
+ *
+ * One record per line, pipe-delimited; blank lines and lines starting with {@code #} are
+ * ignored, and trailing columns may be omitted:
+ * <pre>
+ * TABLE|name|description|table_type|key_length|data_length|parent name|level_type_code|rate_table_type|has_detail_yn
+ * FIELD|name|field_type|length|decimals|key_field_yn|required_yn|description
+ * </pre>
+ * FIELD lines belong to the TABLE line above them and are numbered 1, 2, ... in file
+ * order. Lines are handed to the handler as they are read, so files of any size are
+ * parsed in constant memory.
+ */
+public class LegacyDefinitionReader
+{
+    private static final String TABLE = "TABLE";
+    private static final String FIELD = "FIELD";
+
+    /**
+     * @throws IOException on a read error or a malformed line (message names file and line)
+     */
+    public void read(Path file, DefinitionHandler handler) throws IOException, SQLException
+    {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1))
+        {
+            boolean inTable = false;
+            int seqNo = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                {
+                    continue;
+                }
+                String[] cols = trimmed.split("\\|", -1);
+                try
+                {
+                    switch (cols[0].trim().toUpperCase(Locale.ROOT))
+                    {
+                        case TABLE:
+                            handler.table(parseTable(cols), text(cols, 6));
+                            inTable = true;
+                            seqNo = 0;
+                            break;
+                        case FIELD:
+                            if (!inTable)
+                            {
+                                throw new IllegalArgumentException("FIELD before any TABLE");
+                            }
+                            handler.field(parseField(cols, ++seqNo));
+                            break;
+                        default:
+                            throw new IllegalArgumentException("unknown record type '" + cols[0] + "'");
+                    }
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new IOException(file.getFileName() + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static GenTable parseTable(String[] cols)
+    {
+        GenTable table = new GenTable();
+        table.setTableName(required(cols, 1, "table name"));
+        table.setTableDesc(text(cols, 2));
+        table.setTableType(text(cols, 3));
+        table.setKeyLength(number(cols, 4));
+        table.setDataLength(number(cols, 5));
+        table.setLevelTypeCode(text(cols, 7));
+        table.setRateTableType(text(cols, 8));
+        table.setHasDetailYn(YesNo.canonical(text(cols, 9)));
+        table.setActiveYn(YesNo.YES.getCode());
+        return table;
+    }
+
+    private static GenField parseField(String[] cols, int seqNo)
+    {
+        GenField field = new GenField();
+        field.setFieldName(required(cols, 1, "field name"));
+        field.setFieldType(text(cols, 2));
+        field.setFieldLength(number(cols, 3));
+        field.setDecimalPlaces(number(cols, 4));
+        String key = YesNo.canonical(text(cols, 5));
+        field.setKeyFieldYn(key != null ? key : YesNo.NO.getCode());
+        field.setRequiredYn(YesNo.canonical(text(cols, 6)));
+        field.setFieldDesc(text(cols, 7));
+        field.setSeqNo(seqNo);
+        field.setActiveYn(YesNo.YES.getCode());
+        return field;
+    }
+
+    private static String text(String[] cols, int index)
+    {
+        if (index >= cols.length)
+        {
+            return null;
+        }
+        String value = cols[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String required(String[] cols, int index, String what)
+    {
+        String value = text(cols, index);
+        if (value == null)
+        {
+            throw new IllegalArgumentException("missing " + what);
+        }
+        return value;
+    }
+
+    private static Integer number(String[] cols, int index)
+    {
+        String value = text(cols, index);
+        if (value == null)
+        {
+            return null;
+        }
+        try
+        {
+            return Integer.valueOf(value);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("column " + (index + 1) + " is not a number: '" + value + "'");
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.genowa.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Groups the JDBC statements issued by one user action - a tab opened, a table selected,
+ * a search typed, a dialog opened - and flags actions that overrun their query budget.
+ *
+ * Diagnostic mode, off unless {@code -Dgenowa.trace=true}. An action starts with
+ * {@link #begin} on the thread handling it and stays open while work handed off from it
+ * is pending: {@link com.genowa.service.QueryExecutor} hands off every task it accepts, so
+ * background queries count against the action that asked for them. When the last piece
+ * finishes, an action that ran more than {@code genowa.trace.maxQueries} statements (20),
+ * spent more than {@code genowa.trace.maxMillis} (500) in them, or ran one logical query
+ * {@code genowa.trace.repeatLimit} (10) times or more - the N+1 pattern of a per-row query
+ * in a loop - is reported on standard error.
+ */
+public final class ActionTrace
+{
+    private static final boolean ENABLED = Boolean.getBoolean("genowa.trace");
+    private static final int MAX_QUERIES = Integer.getInteger("genowa.trace.maxQueries", 20);
+    private static final long MAX_MILLIS = Long.getLong("genowa.trace.maxMillis", 500);
+    private static final int REPEAT_LIMIT = Integer.getInteger("genowa.trace.repeatLimit", 10);
+
+    private static final ThreadLocal<ActionTrace> CURRENT = new ThreadLocal<>();
+    private static final Scope NO_SCOPE = () -> { };
+    private static final Handoff NO_HANDOFF = new Handoff(null);
+
+    private final String action;
+    private final long start = System.nanoTime();
+    // The opening scope plus one per handoff not yet finished
+    private final AtomicInteger open = new AtomicInteger(1);
+    private final Map<String, Integer> repeats = new HashMap<>();
+    private int queries;
+    private long queryNanos;
+
+    private ActionTrace(String action)
+    {
+        this.action = action;
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Starts tracing {@code action} on this thread until the returned scope is closed.
+     * Inside another action this joins it instead, so a screen built while a tab opens
+     * counts towards opening the tab.
+     */
+    public static Scope begin(String action)
+    {
+        if (!ENABLED || CURRENT.get() != null)
+        {
+            return NO_SCOPE;
+        }
+        ActionTrace trace = new ActionTrace(action);
+        CURRENT.set(trace);
+        return () ->
+        {
+            CURRENT.remove();
+            trace.release();
+        };
+    }
+
+    /**
+     * Runs {@code body} as {@code action} - see {@link #begin}.
+     */
+    public static void run(String action, Runnable body)
+    {
+        call(action, () ->
+        {
+            body.run();
+            return null;
+        });
+    }
+
+    /**
+     * As {@link #run}, returning what {@code body} returns.
+     */
+    public static <T> T call(String action, Supplier<T> body)
+    {
+        Scope scope = begin(action);
+        try
+        {
+            return body.get();
+        }
+        finally
+        {
+            scope.close();
+        }
+    }
+
+    /**
+     * The action being handled on this thread, or null.
+     */
+    public static ActionTrace current()
+    {
+        return ENABLED ? CURRENT.get() : null;
+    }
+
+    /**
+     * Carries the current action to work that runs later, usually on another thread. The
+     * action stays open until that work resumes the handoff and closes the scope, so
+     * {@link Handoff#resume} must be called exactly once.
+     */
+    public static Handoff handoff()
+    {
+        ActionTrace trace = current();
+        if (trace == null)
+        {
+            return NO_HANDOFF;
+        }
+        trace.open.incrementAndGet();
+        return new Handoff(trace);
+    }
+
+    /**
+     * Counts one statement against this action; {@code name} is its logical query name,
+     * the same for every execution that differs only in parameters.
+     */
+    public synchronized void record(String name, long nanos)
+    {
+        queries++;
+        queryNanos += nanos;
+        repeats.merge(name, 1, Integer::sum);
+    }
+
+    private void release()
+    {
+        if (open.decrementAndGet() == 0)
+        {
+            report();
+        }
+    }
+
+    private synchronized void report()
+    {
+        List<String> repeated = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : repeats.entrySet())
+        {
+            if (entry.getValue() >= REPEAT_LIMIT)
+            {
+                repeated.add(entry.getKey() + " x" + entry.getValue());
+            }
+        }
+        long queryMillis = queryNanos / 1_000_000;
+        if (queries <= MAX_QUERIES && queryMillis <= MAX_MILLIS && repeated.isEmpty())
+        {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("Action \"").append(action).append("\" flagged: ")
+            .append(queries).append(" queries (budget ").append(MAX_QUERIES).append("), ")
+            .append(queryMillis).append(" ms in SQL (budget ").append(MAX_MILLIS).append(" ms), ")
+            .append((System.nanoTime() - start) / 1_000_000).append(" ms elapsed");
+        for (String query : repeated)
+        {
+            message.append("\n    repeated ").append(query).append(" - same statement, different parameters; batch it");
+        }
+        System.err.println(message);
+    }
+
+    /**
+     * The part of an action running on one thread.
+     */
+    public interface Scope extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+
+    /**
+     * An action carried over to work that has not started yet.
+     */
+    public static final class Handoff
+    {
+        private final ActionTrace trace;
+
+        private Handoff(ActionTrace trace)
+        {
+            this.trace = trace;
+        }
+
+        /**
+         * Runs {@code body} on this thread as part of the action - {@link #resume} and close.
+         */
+        public void run(Runnable body)
+        {
+            call(() ->
+            {
+                body.run();
+                return null;
+            });
+        }
+
+        /**
+         * As {@link #run}, returning what {@code body} returns.
+         */
+        public <T> T call(Supplier<T> body)
+        {
+            Scope scope = resume();
+            try
+            {
+                return body.get();
+            }
+            finally
+            {
+                scope.close();
+            }
+        }
+
+        /**
+         * Makes the action current on this thread until the scope is closed.
+         */
+        public Scope resume()
+        {
+            if (trace == null)
+            {
+                return NO_SCOPE;
+            }
+            ActionTrace previous = CURRENT.get();
+            CURRENT.set(trace);
+            return () ->
+            {
+                if (previous == null)
+                {
+                    CURRENT.remove();
+                }
+                else
+                {
+                    CURRENT.set(previous);
+                }
+                trace.release();
+            };
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for building a metadata catalog snapshot, from the database or
+ * from the saved snapshot file.
+ */
+@Name("com.genowa.CatalogLoad")
+@Label("Catalog Load")
+@Category({ "Genowa", "Catalog" })
+@Description("Metadata catalog snapshot loaded from a repository or mapped from the snapshot file")
+public final class CatalogLoadEvent extends Event
+{
+    @Label("Source")
+    String source;
+
+    @Label("Tables")
+    int tables;
+
+    @Label("Fields")
+    int fields;
+
+    public static CatalogLoadEvent start()
+    {
+        CatalogLoadEvent event = new CatalogLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String source, int tables, int fields)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.source = source;
+            this.tables = tables;
+            this.fields = fields;
+            commit();
+        }
+    }
+}
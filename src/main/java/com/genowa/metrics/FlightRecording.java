@@ -0,0 +1,63 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * The application's in-process flight recording, started and saved from the Tools menu.
+ *
+ * Uses the JDK's {@code default} settings - the low-overhead set meant to stay on in
+ * production - and keeps the last {@link #MAX_AGE} of data, so a recording left running
+ * while reproducing a problem stays small. The com.genowa events are always enabled.
+ */
+public final class FlightRecording
+{
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private static Recording recording;
+
+    private FlightRecording()
+    {
+    }
+
+    public static synchronized boolean isRunning()
+    {
+        return recording != null;
+    }
+
+    public static synchronized void start() throws IOException, ParseException
+    {
+        if (recording != null)
+        {
+            return;
+        }
+        Recording started = new Recording(Configuration.getConfiguration("default"));
+        started.setName("Genowa");
+        started.setToDisk(true);
+        started.setMaxAge(MAX_AGE);
+        started.start();
+        recording = started;
+        System.out.println("Flight recording started");
+    }
+
+    /**
+     * Writes the recording so far to {@code file} and stops it. If the file cannot be
+     * written the recording keeps running, so it can be saved elsewhere.
+     */
+    public static synchronized void stop(Path file) throws IOException
+    {
+        if (recording == null)
+        {
+            throw new IllegalStateException("No flight recording is running");
+        }
+        recording.dump(file);
+        recording.close();
+        recording = null;
+        System.out.println("Flight recording saved to " + file);
+    }
+}
@@ -0,0 +1,46 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for repopulating an observable list behind a screen's table or
+ * combo box - the time includes the controls redrawing from the change.
+ */
+@Name("com.genowa.ListRefresh")
+@Label("List Refresh")
+@Category({ "Genowa", "UI" })
+@Description("ObservableList repopulated on the FX thread")
+public final class ListRefreshEvent extends Event
+{
+    @Label("Screen")
+    String screen;
+
+    @Label("List")
+    String list;
+
+    @Label("Size")
+    int size;
+
+    public static ListRefreshEvent start()
+    {
+        ListRefreshEvent event = new ListRefreshEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String screen, String list, int size)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.screen = screen;
+            this.list = list;
+            this.size = size;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one JDBC statement, from execute until its result set is
+ * closed. Emitted by a metered {@link com.genowa.service.ConnectionPool}.
+ */
+@Name("com.genowa.Query")
+@Label("SQL Query")
+@Category({ "Genowa", "Database" })
+@Description("One JDBC statement execution, including rows streamed from its result set")
+public final class QueryEvent extends Event
+{
+    @Label("SQL Id")
+    @Description("Logical query name, source:name")
+    String sqlId;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+
+    public static QueryEvent start()
+    {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String sqlId, long rows, boolean failed)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.sqlId = sqlId;
+            this.rows = rows;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.genowa.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency, row and byte totals per logical query name.
+ *
+ * {@link com.genowa.service.ConnectionPool} records every statement its connections
+ * execute here, and the data file scanner and catalog snapshot record the bytes they map.
+ * A statement's logical name is a leading {@code /* name *}{@code /} comment in its SQL,
+ * or else its verb and first table, e.g. {@code SELECT gen_fields}; see {@link #nameOf}.
+ * Recording takes no locks, so the pool's threads never wait on each other here.
+ */
+public final class QueryMetrics implements QueryMetricsMXBean
+{
+    public static final String OBJECT_NAME = "com.genowa:type=QueryMetrics";
+
+    // Past this many names, new ones fold into OTHER so ad-hoc SQL cannot grow the maps without bound
+    private static final int MAX_NAMES = 500;
+    private static final String OTHER = "(other)";
+
+    private static final QueryMetrics DEFAULT = new QueryMetrics();
+    private static final Map<String, String> SQL_NAMES = new ConcurrentHashMap<>();
+
+    private final Map<String, QueryStats> stats = new ConcurrentHashMap<>();
+    private boolean registered;
+
+    /**
+     * The application-wide registry, shown by the Query Metrics panel and over JMX.
+     */
+    public static QueryMetrics getDefault()
+    {
+        return DEFAULT;
+    }
+
+    public void record(String name, long nanos, long rows, long bytes, boolean failed)
+    {
+        QueryStats target = stats.get(name);
+        if (target == null)
+        {
+            target = stats.computeIfAbsent(stats.size() < MAX_NAMES ? name : OTHER, QueryStats::new);
+        }
+        target.record(nanos, rows, bytes, failed);
+    }
+
+    @Override
+    public List<QueryStats.Summary> getQueries()
+    {
+        List<QueryStats.Summary> summaries = new ArrayList<>(stats.size());
+        for (QueryStats query : stats.values())
+        {
+            summaries.add(query.summary());
+        }
+        summaries.sort(Comparator.comparingLong(QueryStats.Summary::getTotalNanos).reversed());
+        return summaries;
+    }
+
+    @Override
+    public long getExecutionCount()
+    {
+        long count = 0;
+        for (QueryStats.Summary summary : getQueries())
+        {
+            count += summary.getExecutions();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount()
+    {
+        long count = 0;
+        for (QueryStats.Summary summary : getQueries())
+        {
+            count += summary.getErrors();
+        }
+        return count;
+    }
+
+    @Override
+    public void reset()
+    {
+        stats.clear();
+    }
+
+    /**
+     * Registers this registry with the platform MBean server under {@link #OBJECT_NAME};
+     * later calls do nothing. A failure is logged, not thrown - metrics are optional.
+     */
+    public synchronized void registerMBean()
+    {
+        if (registered)
+        {
+            return;
+        }
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName))
+            {
+                server.registerMBean(this, objectName);
+            }
+            registered = true;
+        }
+        catch (JMException e)
+        {
+            System.err.println("Query metrics MBean not registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Logical name of {@code sql}: the text of a leading block comment if there is one,
+     * otherwise the statement's verb and the first table it reads or writes.
+     */
+    public static String nameOf(String sql)
+    {
+        String name = SQL_NAMES.get(sql);
+        if (name == null)
+        {
+            name = deriveName(sql);
+            if (SQL_NAMES.size() < MAX_NAMES)
+            {
+                SQL_NAMES.put(sql, name);
+            }
+        }
+        return name;
+    }
+
+    private static String deriveName(String sql)
+    {
+        String text = sql.strip();
+        if (text.startsWith("/*"))
+        {
+            int end = text.indexOf("*/");
+            if (end > 2)
+            {
+                return text.substring(2, end).strip();
+            }
+        }
+
+        String[] words = text.split("[\\s(),]+");
+        String verb = words[0].toUpperCase(Locale.ROOT);
+        String marker;
+        switch (verb)
+        {
+            case "SELECT":
+            case "DELETE":
+                marker = "FROM";
+                break;
+            case "INSERT":
+            case "MERGE":
+                marker = "INTO";
+                break;
+            case "UPDATE":
+                marker = "UPDATE";
+                break;
+            default:
+                // DDL and the like: the verb and its object type, e.g. CREATE TABLE
+                return words.length > 1 ? verb + " " + words[1].toUpperCase(Locale.ROOT) : verb;
+        }
+        for (int i = 0; i < words.length - 1; i++)
+        {
+            if (marker.equalsIgnoreCase(words[i]))
+            {
+                return verb + " " + words[i + 1].toLowerCase(Locale.ROOT);
+            }
+        }
+        return verb;
+    }
+}
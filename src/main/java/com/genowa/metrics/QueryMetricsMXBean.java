@@ -0,0 +1,20 @@
+package com.genowa.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link QueryMetrics}, registered as {@value QueryMetrics#OBJECT_NAME}.
+ */
+public interface QueryMetricsMXBean
+{
+    /**
+     * Every query recorded since the last reset, costliest (by total time) first.
+     */
+    List<QueryStats.Summary> getQueries();
+
+    long getExecutionCount();
+
+    long getErrorCount();
+
+    void reset();
+}
@@ -0,0 +1,126 @@
+package com.genowa.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one logical query: its latency histogram, failures, rows returned
+ * (or affected, for updates) and bytes mapped.
+ */
+public final class QueryStats
+{
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    QueryStats(String name)
+    {
+        this.name = name;
+    }
+
+    void record(long nanos, long rowCount, long byteCount, boolean failed)
+    {
+        latency.record(nanos);
+        if (failed)
+        {
+            errors.increment();
+        }
+        rows.add(rowCount);
+        bytes.add(byteCount);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Summary summary()
+    {
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        return new Summary(name, snapshot.getCount(), errors.sum(), rows.sum(), bytes.sum(), snapshot.getTotal(),
+            snapshot.percentile(50), snapshot.percentile(99), snapshot.getMax());
+    }
+
+    /**
+     * Immutable view of a query's totals; times are in nanoseconds.
+     */
+    public static final class Summary
+    {
+        private final String name;
+        private final long executions;
+        private final long errors;
+        private final long rows;
+        private final long bytes;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Summary(String name, long executions, long errors, long rows, long bytes, long totalNanos,
+                long p50Nanos, long p99Nanos, long maxNanos)
+        {
+            this.name = name;
+            this.executions = executions;
+            this.errors = errors;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getExecutions()
+        {
+            return executions;
+        }
+
+        public long getErrors()
+        {
+            return errors;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        public long getP50Nanos()
+        {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos()
+        {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos()
+        {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %d calls, %d errors, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d rows, %d bytes",
+                name, executions, errors, p50Nanos / 1e6, p99Nanos / 1e6, maxNanos / 1e6, rows, bytes);
+        }
+    }
+}
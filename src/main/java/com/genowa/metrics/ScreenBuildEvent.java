@@ -0,0 +1,35 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for constructing a screen and its controls.
+ */
+@Name("com.genowa.ScreenBuild")
+@Label("Screen Build")
+@Category({ "Genowa", "UI" })
+public final class ScreenBuildEvent extends Event
+{
+    @Label("Screen")
+    String screen;
+
+    public static ScreenBuildEvent start()
+    {
+        ScreenBuildEvent event = new ScreenBuildEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String screen)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.screen = screen;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.genowa.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one table search.
+ */
+@Name("com.genowa.Search")
+@Label("Table Search")
+@Category({ "Genowa", "Catalog" })
+public final class SearchEvent extends Event
+{
+    @Label("Searched From")
+    String origin;
+
+    @Label("Query")
+    String query;
+
+    @Label("Matches")
+    int matches;
+
+    public static SearchEvent start()
+    {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String origin, String query, int matches)
+    {
+        end();
+        if (shouldCommit())
+        {
+            this.origin = origin;
+            this.query = query;
+            this.matches = matches;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.genowa.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Field definitions stored column by column instead of one {@link GenField} bean per row.
+ *
+ * Ids, sequence numbers, lengths and decimal places are {@code int[]} columns (with
+ * {@link #NULL} for a missing value); key, required and active flags are {@link BitSet}s;
+ * names, descriptions and type codes are dictionary-encoded, so a name shared by hundreds
+ * of tables is held once. Rows are grouped by table in the order they were added, and a
+ * table's rows are found by binary search over the distinct table ids.
+ *
+ * Scans read the columns directly ({@link #getFieldLength(int)} and friends); screens and
+ * other bean-style code read rows through {@link FieldView} flyweights from
+ * {@link #getFields(int)}. Immutable once built.
+ */
+public final class FieldCatalog
+{
+    /**
+     * Stored in an int column where the source value was null.
+     */
+    public static final int NULL = Integer.MIN_VALUE;
+
+    /**
+     * Stored in the modified-date column where the source value was null.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private final int size;
+    private final int[] fieldIds;
+    private final int[] tableIds;
+    private final int[] seqNos;
+    private final int[] lengths;
+    private final int[] decimals;
+    private final int[] nameCodes;
+    private final int[] descCodes;
+    private final int[] typeCodes;
+    private final long[] modified;
+    private final BitSet keys;
+    private final BitSet required;
+    private final BitSet active;
+    private final String[] names;
+    private final String[] descriptions;
+    private final String[] types;
+
+    // Distinct table ids in row order, and where each table's rows start (plus an end sentinel)
+    private final int[] tableKeys;
+    private final int[] tableStarts;
+
+    private FieldCatalog(Builder b, int[] order)
+    {
+        size = b.size;
+        fieldIds = permute(b.fieldIds, order, size);
+        tableIds = permute(b.tableIds, order, size);
+        seqNos = permute(b.seqNos, order, size);
+        lengths = permute(b.lengths, order, size);
+        decimals = permute(b.decimals, order, size);
+        nameCodes = permute(b.nameCodes, order, size);
+        descCodes = permute(b.descCodes, order, size);
+        typeCodes = permute(b.typeCodes, order, size);
+        modified = new long[size];
+        keys = new BitSet(size);
+        required = new BitSet(size);
+        active = new BitSet(size);
+        for (int i = 0; i < size; i++)
+        {
+            int from = order != null ? order[i] : i;
+            modified[i] = b.modified[from];
+            keys.set(i, b.keys.get(from));
+            required.set(i, b.required.get(from));
+            active.set(i, b.active.get(from));
+        }
+        names = b.names.values();
+        descriptions = b.descriptions.values();
+        types = b.types.values();
+
+        int tables = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (i == 0 || tableIds[i] != tableIds[i - 1])
+            {
+                tables++;
+            }
+        }
+        int[] keysByRow = new int[tables];
+        int[] starts = new int[tables + 1];
+        int t = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (i == 0 || tableIds[i] != tableIds[i - 1])
+            {
+                keysByRow[t] = tableIds[i];
+                starts[t++] = i;
+            }
+        }
+        starts[tables] = size;
+
+        // Sort table ids for binary search, carrying their start rows along
+        long[] packed = new long[tables];
+        for (int i = 0; i < tables; i++)
+        {
+            packed[i] = ((long) keysByRow[i] << 32) | i;
+        }
+        Arrays.sort(packed);
+        tableKeys = new int[tables];
+        tableStarts = new int[tables * 2];
+        for (int i = 0; i < tables; i++)
+        {
+            int at = (int) packed[i];
+            tableKeys[i] = (int) (packed[i] >> 32);
+            tableStarts[i * 2] = starts[at];
+            tableStarts[i * 2 + 1] = starts[at + 1];
+        }
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getTableCount()
+    {
+        return tableKeys.length;
+    }
+
+    /**
+     * Rows of one table as flyweight views, in the order they were added; empty if the table
+     * has no fields.
+     */
+    public List<FieldRow> getFields(int tableId)
+    {
+        int t = Arrays.binarySearch(tableKeys, tableId);
+        if (t < 0)
+        {
+            return Collections.emptyList();
+        }
+        int from = tableStarts[t * 2];
+        int to = tableStarts[t * 2 + 1];
+        return new AbstractList<>()
+        {
+            @Override
+            public FieldRow get(int index)
+            {
+                return view(from + Objects.checkIndex(index, to - from));
+            }
+
+            @Override
+            public int size()
+            {
+                return to - from;
+            }
+        };
+    }
+
+    public FieldView view(int row)
+    {
+        return new FieldView(this, Objects.checkIndex(row, size));
+    }
+
+    public int getFieldId(int row)
+    {
+        return fieldIds[row];
+    }
+
+    public int getTableId(int row)
+    {
+        return tableIds[row];
+    }
+
+    public String getFieldName(int row)
+    {
+        return names[nameCodes[row]];
+    }
+
+    /**
+     * Dictionary code of the row's name; equal names share a code.
+     */
+    public int getNameCode(int row)
+    {
+        return nameCodes[row];
+    }
+
+    public String getFieldDesc(int row)
+    {
+        return descriptions[descCodes[row]];
+    }
+
+    public int getSeqNo(int row)
+    {
+        return seqNos[row];
+    }
+
+    public String getFieldType(int row)
+    {
+        return types[typeCodes[row]];
+    }
+
+    /**
+     * Dictionary code of the row's type; see {@link #getTypes()}.
+     */
+    public int getTypeCode(int row)
+    {
+        return typeCodes[row];
+    }
+
+    public int getFieldLength(int row)
+    {
+        return lengths[row];
+    }
+
+    public int getDecimalPlaces(int row)
+    {
+        return decimals[row];
+    }
+
+    public boolean isKey(int row)
+    {
+        return keys.get(row);
+    }
+
+    public boolean isRequired(int row)
+    {
+        return required.get(row);
+    }
+
+    public boolean isActive(int row)
+    {
+        return active.get(row);
+    }
+
+    public long getModifiedMillis(int row)
+    {
+        return modified[row];
+    }
+
+    /**
+     * Distinct type codes, indexed by {@link #getTypeCode(int)}.
+     */
+    public List<String> getTypes()
+    {
+        return Collections.unmodifiableList(Arrays.asList(types));
+    }
+
+    public int getDistinctNameCount()
+    {
+        return names.length;
+    }
+
+    private static int[] permute(int[] column, int[] order, int size)
+    {
+        if (order == null)
+        {
+            return Arrays.copyOf(column, size);
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = column[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Accumulates rows; not thread-safe. Rows normally arrive grouped by table (as
+     * gen_fields is read ordered by table_id, seq_no); if they do not, {@link #build()}
+     * regroups them by table, keeping each table's rows in arrival order.
+     */
+    public static final class Builder
+    {
+        private int size;
+        private int[] fieldIds = new int[256];
+        private int[] tableIds = new int[256];
+        private int[] seqNos = new int[256];
+        private int[] lengths = new int[256];
+        private int[] decimals = new int[256];
+        private int[] nameCodes = new int[256];
+        private int[] descCodes = new int[256];
+        private int[] typeCodes = new int[256];
+        private long[] modified = new long[256];
+        private final BitSet keys = new BitSet();
+        private final BitSet required = new BitSet();
+        private final BitSet active = new BitSet();
+        private final Dictionary names = new Dictionary();
+        private final Dictionary descriptions = new Dictionary();
+        private final Dictionary types = new Dictionary();
+        private boolean grouped = true;
+        private final Set<Integer> tablesSeen = new HashSet<>();
+        private int lastTableId;
+
+        private Builder()
+        {
+        }
+
+        public Builder add(FieldRow field)
+        {
+            if (size == fieldIds.length)
+            {
+                grow();
+            }
+            int row = size++;
+            fieldIds[row] = unboxed(field.getFieldId());
+            tableIds[row] = unboxed(field.getTableId());
+            seqNos[row] = unboxed(field.getSeqNo());
+            lengths[row] = unboxed(field.getFieldLength());
+            decimals[row] = unboxed(field.getDecimalPlaces());
+            nameCodes[row] = names.code(field.getFieldName());
+            descCodes[row] = descriptions.code(field.getFieldDesc());
+            typeCodes[row] = types.code(field.getFieldType());
+            modified[row] = field.getModifiedDate() != null ? field.getModifiedDate().getTime() : NO_DATE;
+            keys.set(row, YesNo.isYes(field.getKeyFieldYn()));
+            required.set(row, YesNo.isYes(field.getRequiredYn()));
+            active.set(row, YesNo.isYes(field.getActiveYn()));
+
+            // A table that resumes after another table's rows means the input is not grouped
+            int tableId = tableIds[row];
+            if (row == 0 || tableId != lastTableId)
+            {
+                grouped &= tablesSeen.add(tableId);
+                lastTableId = tableId;
+            }
+            return this;
+        }
+
+        public FieldCatalog build()
+        {
+            return new FieldCatalog(this, grouped ? null : groupByTable());
+        }
+
+        private int[] groupByTable()
+        {
+            // Sorting (table id, row) pairs groups by table and keeps arrival order within each
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++)
+            {
+                packed[i] = ((long) tableIds[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++)
+            {
+                order[i] = (int) packed[i];
+            }
+            return order;
+        }
+
+        private void grow()
+        {
+            int capacity = fieldIds.length * 2;
+            fieldIds = Arrays.copyOf(fieldIds, capacity);
+            tableIds = Arrays.copyOf(tableIds, capacity);
+            seqNos = Arrays.copyOf(seqNos, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            decimals = Arrays.copyOf(decimals, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            descCodes = Arrays.copyOf(descCodes, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            modified = Arrays.copyOf(modified, capacity);
+        }
+
+        private static int unboxed(Integer value)
+        {
+            return value != null ? value : NULL;
+        }
+    }
+
+    /**
+     * Assigns each distinct string (null included) a dense code.
+     */
+    private static final class Dictionary
+    {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value)
+        {
+            Integer code = codes.get(value);
+            if (code == null)
+            {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String[] values()
+        {
+            return values.toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.genowa.model;
+
+import java.util.Locale;
+
+/**
+ * Storage class of a legacy field, derived from its type code and decimal places.
+ */
+public enum FieldKind
+{
+    CHAR,
+    INTEGER,
+    DECIMAL,
+    DATE;
+
+    public static FieldKind of(FieldRow field)
+    {
+        String type = field.getFieldType() == null ? "" : field.getFieldType().trim().toUpperCase(Locale.ROOT);
+        Integer decimals = field.getDecimalPlaces();
+        switch (type)
+        {
+            case "N":
+            case "NUM":
+            case "NUMERIC":
+            case "NUMBER":
+            case "INT":
+            case "INTEGER":
+            case "LONG":
+            case "SHORT":
+            case "9":
+                return decimals != null && decimals > 0 ? DECIMAL : INTEGER;
+            case "DEC":
+            case "DECIMAL":
+            case "MONEY":
+            case "AMOUNT":
+                return DECIMAL;
+            case "D":
+            case "DATE":
+                return DATE;
+            default:
+                return CHAR;
+        }
+    }
+}
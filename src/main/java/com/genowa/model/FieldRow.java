@@ -0,0 +1,35 @@
+package com.genowa.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Read-only view of one field definition, implemented by the {@link GenField} bean and by
+ * {@link FieldView} rows of a columnar {@link FieldCatalog}. Screens, templates and
+ * layouts read fields through this interface so either representation can back them.
+ */
+public interface FieldRow
+{
+    Integer getFieldId();
+
+    Integer getTableId();
+
+    String getFieldName();
+
+    String getFieldDesc();
+
+    Integer getSeqNo();
+
+    String getFieldType();
+
+    Integer getFieldLength();
+
+    Integer getDecimalPlaces();
+
+    String getKeyFieldYn();
+
+    String getRequiredYn();
+
+    String getActiveYn();
+
+    Timestamp getModifiedDate();
+}
@@ -0,0 +1,126 @@
+package com.genowa.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Flyweight over one row of a {@link FieldCatalog}: a catalog reference and a row number.
+ * Every getter reads straight from the catalog's columns.
+ */
+public final class FieldView implements FieldRow
+{
+    private final FieldCatalog catalog;
+    private final int row;
+
+    FieldView(FieldCatalog catalog, int row)
+    {
+        this.catalog = catalog;
+        this.row = row;
+    }
+
+    public int getRow()
+    {
+        return row;
+    }
+
+    @Override
+    public Integer getFieldId()
+    {
+        return catalog.getFieldId(row);
+    }
+
+    @Override
+    public Integer getTableId()
+    {
+        return catalog.getTableId(row);
+    }
+
+    @Override
+    public String getFieldName()
+    {
+        return catalog.getFieldName(row);
+    }
+
+    @Override
+    public String getFieldDesc()
+    {
+        return catalog.getFieldDesc(row);
+    }
+
+    @Override
+    public Integer getSeqNo()
+    {
+        return boxed(catalog.getSeqNo(row));
+    }
+
+    @Override
+    public String getFieldType()
+    {
+        return catalog.getFieldType(row);
+    }
+
+    @Override
+    public Integer getFieldLength()
+    {
+        return boxed(catalog.getFieldLength(row));
+    }
+
+    @Override
+    public Integer getDecimalPlaces()
+    {
+        return boxed(catalog.getDecimalPlaces(row));
+    }
+
+    @Override
+    public String getKeyFieldYn()
+    {
+        return catalog.isKey(row) ? "Y" : "N";
+    }
+
+    @Override
+    public String getRequiredYn()
+    {
+        return catalog.isRequired(row) ? "Y" : "N";
+    }
+
+    @Override
+    public String getActiveYn()
+    {
+        return catalog.isActive(row) ? "Y" : "N";
+    }
+
+    @Override
+    public Timestamp getModifiedDate()
+    {
+        long millis = catalog.getModifiedMillis(row);
+        return millis == FieldCatalog.NO_DATE ? null : new Timestamp(millis);
+    }
+
+    private static Integer boxed(int value)
+    {
+        return value == FieldCatalog.NULL ? null : value;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof FieldView))
+        {
+            return false;
+        }
+        FieldView other = (FieldView) o;
+        return other.catalog == catalog && other.row == row;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return System.identityHashCode(catalog) * 31 + row;
+    }
+
+    @Override
+    public String toString()
+    {
+        String desc = getFieldDesc();
+        return getFieldName() + (desc != null && !desc.isEmpty() ? " - " + desc : "");
+    }
+}
@@ -2,7 +2,7 @@ package com.genowa.model;
 
 import java.sql.Timestamp;
 
-public class GenField
+public class GenField implements FieldRow
 {
     private Integer fieldId;
     private Integer tableId;
@@ -1,6 +1,7 @@
 package com.genowa.model;
 
 import java.sql.Timestamp;
+import java.util.Locale;
 
 public class GenTable
 {
@@ -198,6 +199,16 @@ public class GenTable
         this.modifiedDate = modifiedDate;
     }
 
+    /**
+     * Plain substring match, as the Add Table dialog filters: true if the name or
+     * description contains {@code lowerCaseText}, which is lower-cased with {@link Locale#ROOT}.
+     */
+    public boolean containsText(String lowerCaseText)
+    {
+        return (tableName != null && tableName.toLowerCase(Locale.ROOT).contains(lowerCaseText))
+            || (tableDesc != null && tableDesc.toLowerCase(Locale.ROOT).contains(lowerCaseText));
+    }
+
     @Override
     public String toString()
     {
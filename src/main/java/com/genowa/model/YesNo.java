@@ -0,0 +1,68 @@
+package com.genowa.model;
+
+import java.util.Locale;
+
+/**
+ * Decoding of the legacy Y/N flag columns (active_yn, key_field_yn, required_yn,
+ * has_detail_yn). Mapped rows hold the canonical {@code "Y"}/{@code "N"} constants, so
+ * a flag is stored once per JVM and may be compared by identity.
+ */
+public enum YesNo
+{
+    YES("Y"),
+    NO("N");
+
+    private final String code;
+
+    YesNo(String code)
+    {
+        this.code = code;
+    }
+
+    public String getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Y, YES, T, TRUE and 1 (any case, padded or not) decode to YES; any other non-blank
+     * value to NO; null or blank to null.
+     */
+    public static YesNo decode(String raw)
+    {
+        if (raw == null)
+        {
+            return null;
+        }
+        String value = raw.trim();
+        if (value.isEmpty())
+        {
+            return null;
+        }
+        switch (value.toUpperCase(Locale.ROOT))
+        {
+            case "Y":
+            case "YES":
+            case "T":
+            case "TRUE":
+            case "1":
+                return YES;
+            default:
+                return NO;
+        }
+    }
+
+    /**
+     * The canonical {@code "Y"}/{@code "N"} constant for a raw flag value, or null.
+     */
+    public static String canonical(String raw)
+    {
+        YesNo flag = decode(raw);
+        return flag != null ? flag.code : null;
+    }
+
+    public static boolean isYes(String raw)
+    {
+        return decode(raw) == YES;
+    }
+}
@@ -0,0 +1,54 @@
+package com.genowa.rating;
+
+import com.genowa.codec.KeyIndex;
+import com.genowa.codec.RecordLayout;
+import com.genowa.model.GenTable;
+import com.genowa.service.MetadataCatalog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Rate sources backed by legacy data files named {@code <TABLE_NAME>.dat} in one directory,
+ * each looked up through its {@link KeyIndex} (built on first use, then re-mapped).
+ */
+public class DataFileRateSources implements RateSourceProvider
+{
+    public static final String EXTENSION = ".dat";
+
+    private final Path directory;
+    private final MetadataCatalog.Snapshot snapshot;
+
+    public DataFileRateSources(Path directory, MetadataCatalog.Snapshot snapshot)
+    {
+        this.directory = directory;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public RateSource open(GenTable table) throws IOException
+    {
+        Path dataFile = directory.resolve(table.getTableName() + EXTENSION);
+        if (!Files.isRegularFile(dataFile))
+        {
+            return null;
+        }
+        RecordLayout layout = RecordLayout.compile(table, snapshot.getFields(table.getTableId()));
+        KeyIndex index = KeyIndex.openOrBuild(dataFile, layout);
+        return new RateSource()
+        {
+            @Override
+            public long find(String key)
+            {
+                return index.find(key);
+            }
+
+            @Override
+            public int getKeyWidth()
+            {
+                return index.getKeyWidth();
+            }
+        };
+    }
+}
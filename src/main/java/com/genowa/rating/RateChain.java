@@ -0,0 +1,64 @@
+package com.genowa.rating;
+
+import com.genowa.model.GenTable;
+
+import java.util.List;
+
+/**
+ * Tables a rate lookup falls back through, most specific first, with the key width used
+ * at each level.
+ */
+public final class RateChain
+{
+    private final GenTable[] levels;
+    private final int[] keyWidths;
+
+    RateChain(List<GenTable> levels)
+    {
+        this.levels = levels.toArray(new GenTable[0]);
+        this.keyWidths = new int[this.levels.length];
+        for (int i = 0; i < keyWidths.length; i++)
+        {
+            Integer keyLength = this.levels[i].getKeyLength();
+            keyWidths[i] = keyLength != null && keyLength > 0 ? keyLength : Integer.MAX_VALUE;
+        }
+    }
+
+    public int size()
+    {
+        return levels.length;
+    }
+
+    public GenTable getTable(int level)
+    {
+        return levels[level];
+    }
+
+    /**
+     * The table's key_length, or {@link Integer#MAX_VALUE} if unset (the key is used whole,
+     * up to the width of the table's {@link RateSource}).
+     */
+    public int getKeyWidth(int level)
+    {
+        return keyWidths[level];
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (GenTable table : levels)
+        {
+            if (sb.length() > 0)
+            {
+                sb.append(" -> ");
+            }
+            sb.append(table.getTableName());
+            if (table.getLevelTypeCode() != null)
+            {
+                sb.append(" [").append(table.getLevelTypeCode()).append(']');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.genowa.rating;
+
+import com.genowa.model.GenTable;
+
+/**
+ * Where a rate lookup was satisfied: the table, how far down its chain it was found, the
+ * key as used at that level and the matching record.
+ */
+public final class RateHit
+{
+    private final GenTable table;
+    private final int level;
+    private final String key;
+    private final long recordNumber;
+
+    RateHit(GenTable table, int level, String key, long recordNumber)
+    {
+        this.table = table;
+        this.level = level;
+        this.key = key;
+        this.recordNumber = recordNumber;
+    }
+
+    public GenTable getTable()
+    {
+        return table;
+    }
+
+    public String getLevelTypeCode()
+    {
+        return table.getLevelTypeCode();
+    }
+
+    /**
+     * Position in the chain; 0 means the most specific table answered.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    public long getRecordNumber()
+    {
+        return recordNumber;
+    }
+
+    public boolean isFallback()
+    {
+        return level > 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return table.getTableName() + "[" + key + "] #" + recordNumber + (level > 0 ? " (fallback " + level + ")" : "");
+    }
+}
@@ -0,0 +1,222 @@
+package com.genowa.rating;
+
+import com.genowa.model.GenTable;
+import com.genowa.model.YesNo;
+import com.genowa.service.MetadataCatalog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves rating keys through the table hierarchy of a catalog snapshot.
+ *
+ * A table's chain is its detail tables (children, when has_detail_yn is Y, ordered by
+ * level_type_code), then the table itself, then its parents up the parent_table_id links.
+ * A lookup tries each level in turn, cutting the key to that level's key_length (or its rate
+ * source's key width, if narrower), and the first level holding the key answers. Chains are built from the in-memory snapshot and
+ * kept in a bounded LRU memo, and each table's rate source is opened once, so batch rating
+ * never goes back to the database.
+ */
+public class RateLookupEngine
+{
+    private static final RateSource NO_RATES = key -> -1;
+
+    private final MetadataCatalog.Snapshot snapshot;
+    private final RateSourceProvider provider;
+    private final int maxChains;
+    private final Map<Integer, List<GenTable>> detailsByParent = new HashMap<>();
+    private final Map<Integer, RateChain> chains;
+    private final Map<Integer, CompletableFuture<RateSource>> sources = new ConcurrentHashMap<>();
+
+    private final LongAdder chainHits = new LongAdder();
+    private final LongAdder chainMisses = new LongAdder();
+
+    public RateLookupEngine(MetadataCatalog.Snapshot snapshot, RateSourceProvider provider, int maxChains)
+    {
+        this.snapshot = snapshot;
+        this.provider = provider;
+        this.maxChains = maxChains;
+        this.chains = new LinkedHashMap<>(64, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, RateChain> eldest)
+            {
+                return size() > RateLookupEngine.this.maxChains;
+            }
+        };
+
+        for (GenTable table : snapshot.getTables())
+        {
+            if (table.getParentTableId() != null && !table.getParentTableId().equals(table.getTableId()))
+            {
+                detailsByParent.computeIfAbsent(table.getParentTableId(), id -> new ArrayList<>()).add(table);
+            }
+        }
+        Comparator<GenTable> byLevel = Comparator.comparing(GenTable::getLevelTypeCode,
+            Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(GenTable::getTableName);
+        detailsByParent.values().forEach(details -> details.sort(byLevel));
+    }
+
+    /**
+     * Fallback chain of a table, or null if the table is not in the snapshot.
+     */
+    public RateChain getChain(int tableId)
+    {
+        RateChain chain;
+        synchronized (chains)
+        {
+            chain = chains.get(tableId);
+        }
+        if (chain != null)
+        {
+            chainHits.increment();
+            return chain;
+        }
+        chainMisses.increment();
+
+        GenTable table = snapshot.getTable(tableId);
+        if (table == null)
+        {
+            return null;
+        }
+        chain = resolve(table);
+        synchronized (chains)
+        {
+            chains.put(tableId, chain);
+        }
+        return chain;
+    }
+
+    /**
+     * Looks {@code key} up through the table's chain. Returns null if no level holds it.
+     */
+    public RateHit lookup(int tableId, String key) throws IOException
+    {
+        RateChain chain = getChain(tableId);
+        return chain != null ? lookup(chain, key) : null;
+    }
+
+    /**
+     * Looks up many keys against one table, e.g. every coverage of a policy, resolving the
+     * chain once. The result holds one entry per key, null where no level holds it.
+     */
+    public List<RateHit> lookupAll(int tableId, List<String> keys) throws IOException
+    {
+        RateChain chain = getChain(tableId);
+        List<RateHit> hits = new ArrayList<>(keys.size());
+        for (String key : keys)
+        {
+            hits.add(chain != null ? lookup(chain, key) : null);
+        }
+        return hits;
+    }
+
+    public int getCachedChainCount()
+    {
+        synchronized (chains)
+        {
+            return chains.size();
+        }
+    }
+
+    public long getChainHits()
+    {
+        return chainHits.sum();
+    }
+
+    public long getChainMisses()
+    {
+        return chainMisses.sum();
+    }
+
+    private RateHit lookup(RateChain chain, String key) throws IOException
+    {
+        for (int level = 0; level < chain.size(); level++)
+        {
+            GenTable table = chain.getTable(level);
+            RateSource source = source(table);
+            int width = Math.min(chain.getKeyWidth(level), source.getKeyWidth());
+            String levelKey = key.length() > width ? key.substring(0, width) : key;
+            long record = source.find(levelKey);
+            if (record >= 0)
+            {
+                return new RateHit(table, level, levelKey, record);
+            }
+        }
+        return null;
+    }
+
+    private RateSource source(GenTable table) throws IOException
+    {
+        CompletableFuture<RateSource> source = sources.get(table.getTableId());
+        if (source == null)
+        {
+            CompletableFuture<RateSource> opening = new CompletableFuture<>();
+            source = sources.putIfAbsent(table.getTableId(), opening);
+            if (source == null)
+            {
+                // Opened outside the map so a slow index build does not block other tables;
+                // concurrent lookups of this table wait for it rather than open it again
+                try
+                {
+                    RateSource opened = provider.open(table);
+                    opening.complete(opened != null ? opened : NO_RATES);
+                    return opening.join();
+                }
+                catch (Throwable e)
+                {
+                    // Forgotten, so a later lookup tries again
+                    sources.remove(table.getTableId(), opening);
+                    opening.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        try
+        {
+            return source.join();
+        }
+        catch (CompletionException e)
+        {
+            // The thread that opened the source failed; report its error here too
+            if (e.getCause() instanceof IOException)
+            {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private RateChain resolve(GenTable table)
+    {
+        List<GenTable> levels = new ArrayList<>();
+        if (YesNo.isYes(table.getHasDetailYn()))
+        {
+            levels.addAll(detailsByParent.getOrDefault(table.getTableId(), List.of()));
+        }
+
+        // Climb parent links, stopping at a missing parent or a cycle
+        Set<Integer> seen = new HashSet<>();
+        for (GenTable level = table; level != null && seen.add(level.getTableId());
+             level = level.getParentTableId() != null ? snapshot.getTable(level.getParentTableId()) : null)
+        {
+            levels.add(level);
+        }
+        return new RateChain(levels);
+    }
+}
@@ -0,0 +1,22 @@
+package com.genowa.rating;
+
+/**
+ * Rate records of one table, looked up by key. {@link com.genowa.codec.KeyIndex#find(String)}
+ * fits this shape.
+ */
+@FunctionalInterface
+public interface RateSource
+{
+    /**
+     * Record number of the rate stored under {@code key}, or -1 if there is none.
+     */
+    long find(String key);
+
+    /**
+     * Widest key {@link #find} can match; lookups cut longer keys to it. Unbounded by default.
+     */
+    default int getKeyWidth()
+    {
+        return Integer.MAX_VALUE;
+    }
+}
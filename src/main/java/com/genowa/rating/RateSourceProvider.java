@@ -0,0 +1,17 @@
+package com.genowa.rating;
+
+import com.genowa.model.GenTable;
+
+import java.io.IOException;
+
+/**
+ * Opens the rate source of a table.
+ */
+@FunctionalInterface
+public interface RateSourceProvider
+{
+    /**
+     * @return the table's rates, or null if the table has none to look up
+     */
+    RateSource open(GenTable table) throws IOException;
+}
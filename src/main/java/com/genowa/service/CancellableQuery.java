@@ -0,0 +1,70 @@
+package com.genowa.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Handle that lets another thread abandon a query.
+ *
+ * The executing code attaches its statement while it runs; {@link #cancel()} then calls
+ * {@link Statement#cancel()} so the server stops work on a result nobody will read.
+ * Cancelling before the statement is attached stops the query from starting at all.
+ */
+public class CancellableQuery
+{
+    private volatile Statement statement;
+    private volatile boolean cancelled;
+
+    public void cancel()
+    {
+        cancelled = true;
+        cancelStatement(statement);
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Throws {@link CancellationException} if the query has been cancelled.
+     */
+    public void checkCancelled()
+    {
+        if (cancelled)
+        {
+            throw new CancellationException("Query cancelled");
+        }
+    }
+
+    void attach(Statement stmt)
+    {
+        statement = stmt;
+        if (cancelled)
+        {
+            cancelStatement(stmt);
+        }
+    }
+
+    void detach()
+    {
+        statement = null;
+    }
+
+    private static void cancelStatement(Statement stmt)
+    {
+        if (stmt == null)
+        {
+            return;
+        }
+        try
+        {
+            stmt.cancel();
+        }
+        catch (SQLException e)
+        {
+            // Finished or returned to the pool in the meantime - nothing left to cancel
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.genowa.service;
+
+import com.genowa.model.FieldCatalog;
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+import com.genowa.model.YesNo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Local binary copy of a {@link MetadataCatalog.Snapshot}, so the catalog can be shown
+ * before the database answers.
+ *
+ * Layout (big-endian): magic, format version, the {@link CatalogStamp} the rows were
+ * read under, a string table (each distinct string once, UTF-8), the tables, then the
+ * fields in their columnar order; strings are referenced by index and -1 is null. A
+ * CRC32 of everything before it closes the file. The file is written to a temporary
+ * name and moved into place, and read through a read-only memory mapping; a missing,
+ * truncated, corrupt or older-format file reads as null.
+ */
+public final class CatalogSnapshotFile
+{
+    private static final int MAGIC = 0x47434154; // "GCAT"
+    private static final int VERSION = 1;
+    private static final int NULL_REF = -1;
+
+    private static final int KEY = 1;
+    private static final int REQUIRED = 2;
+    private static final int ACTIVE = 4;
+
+    private final Path path;
+
+    public CatalogSnapshotFile(Path path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * {@code ~/.genowa/catalog.snapshot}, or the {@code genowa.snapshot} system property.
+     */
+    public static CatalogSnapshotFile defaultFile()
+    {
+        String configured = System.getProperty("genowa.snapshot");
+        return new CatalogSnapshotFile(configured != null
+            ? Path.of(configured)
+            : Path.of(System.getProperty("user.home"), ".genowa", "catalog.snapshot"));
+    }
+
+    public Path getPath()
+    {
+        return path;
+    }
+
+    public void write(MetadataCatalog.Snapshot snapshot) throws IOException
+    {
+        List<GenTable> tables = snapshot.getTables();
+        FieldCatalog fields = snapshot.getFieldCatalog();
+
+        Map<String, Integer> refs = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (GenTable t : tables)
+        {
+            for (String s : new String[] { t.getTableName(), t.getTableDesc(), t.getLevelTypeCode(), t.getTableType(),
+                t.getRateTableType(), t.getHasDetailYn(), t.getActiveYn(), t.getCreatedBy(), t.getModifiedBy() })
+            {
+                ref(s, refs, strings);
+            }
+        }
+        for (int row = 0; row < fields.size(); row++)
+        {
+            ref(fields.getFieldName(row), refs, strings);
+            ref(fields.getFieldDesc(row), refs, strings);
+            ref(fields.getFieldType(row), refs, strings);
+        }
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            CatalogStamp stamp = snapshot.getStamp();
+            out.writeInt(stamp.getTableCount());
+            out.writeInt(stamp.getFieldCount());
+            out.writeLong(stamp.getTablesModified());
+            out.writeLong(stamp.getFieldsModified());
+
+            out.writeInt(strings.size());
+            for (String s : strings)
+            {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(tables.size());
+            for (GenTable t : tables)
+            {
+                out.writeInt(t.getTableId());
+                out.writeInt(refs.get(t.getTableName()));
+                out.writeInt(refOf(t.getTableDesc(), refs));
+                out.writeInt(nullable(t.getParentTableId()));
+                out.writeInt(refOf(t.getLevelTypeCode(), refs));
+                out.writeInt(nullable(t.getKeyLength()));
+                out.writeInt(nullable(t.getDataLength()));
+                out.writeInt(refOf(t.getTableType(), refs));
+                out.writeInt(refOf(t.getRateTableType(), refs));
+                out.writeInt(refOf(t.getHasDetailYn(), refs));
+                out.writeInt(refOf(t.getActiveYn(), refs));
+                out.writeInt(refOf(t.getCreatedBy(), refs));
+                out.writeLong(millis(t.getCreatedDate()));
+                out.writeInt(refOf(t.getModifiedBy(), refs));
+                out.writeLong(millis(t.getModifiedDate()));
+            }
+
+            out.writeInt(fields.size());
+            for (int row = 0; row < fields.size(); row++)
+            {
+                out.writeInt(fields.getFieldId(row));
+                out.writeInt(fields.getTableId(row));
+                out.writeInt(refOf(fields.getFieldName(row), refs));
+                out.writeInt(refOf(fields.getFieldDesc(row), refs));
+                out.writeInt(fields.getSeqNo(row));
+                out.writeInt(refOf(fields.getFieldType(row), refs));
+                out.writeInt(fields.getFieldLength(row));
+                out.writeInt(fields.getDecimalPlaces(row));
+                out.writeByte((fields.isKey(row) ? KEY : 0) | (fields.isRequired(row) ? REQUIRED : 0)
+                    | (fields.isActive(row) ? ACTIVE : 0));
+                out.writeLong(fields.getModifiedMillis(row));
+            }
+
+            // The trailer is outside its own checksum
+            out.flush();
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The saved snapshot, or null if there is no usable file.
+     */
+    public MetadataCatalog.Snapshot read() throws IOException
+    {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE)
+            {
+                return null;
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        catch (NoSuchFileException e)
+        {
+            return null;
+        }
+
+        int end = buf.capacity() - Long.BYTES;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+        {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(0, end));
+        if (crc.getValue() != buf.getLong(end))
+        {
+            System.err.println("Catalog snapshot " + path + " is corrupt; ignoring it");
+            return null;
+        }
+
+        try
+        {
+            buf.position(8);
+            CatalogStamp stamp = new CatalogStamp(buf.getInt(), buf.getInt(), buf.getLong(), buf.getLong());
+
+            String[] strings = new String[buf.getInt()];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++)
+            {
+                int length = buf.getInt();
+                if (length > scratch.length)
+                {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buf.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int tableCount = buf.getInt();
+            List<GenTable> tables = new ArrayList<>(tableCount);
+            for (int i = 0; i < tableCount; i++)
+            {
+                GenTable t = new GenTable();
+                t.setTableId(buf.getInt());
+                t.setTableName(string(strings, buf.getInt()));
+                t.setTableDesc(string(strings, buf.getInt()));
+                t.setParentTableId(boxed(buf.getInt()));
+                t.setLevelTypeCode(string(strings, buf.getInt()));
+                t.setKeyLength(boxed(buf.getInt()));
+                t.setDataLength(boxed(buf.getInt()));
+                t.setTableType(string(strings, buf.getInt()));
+                t.setRateTableType(string(strings, buf.getInt()));
+                t.setHasDetailYn(YesNo.canonical(string(strings, buf.getInt())));
+                t.setActiveYn(YesNo.canonical(string(strings, buf.getInt())));
+                t.setCreatedBy(string(strings, buf.getInt()));
+                t.setCreatedDate(timestamp(buf.getLong()));
+                t.setModifiedBy(string(strings, buf.getInt()));
+                t.setModifiedDate(timestamp(buf.getLong()));
+                tables.add(t);
+            }
+
+            // One bean reused for every row; the builder copies it into columns
+            int fieldCount = buf.getInt();
+            FieldCatalog.Builder fields = FieldCatalog.builder();
+            GenField f = new GenField();
+            for (int i = 0; i < fieldCount; i++)
+            {
+                f.setFieldId(buf.getInt());
+                f.setTableId(buf.getInt());
+                f.setFieldName(string(strings, buf.getInt()));
+                f.setFieldDesc(string(strings, buf.getInt()));
+                f.setSeqNo(boxed(buf.getInt()));
+                f.setFieldType(string(strings, buf.getInt()));
+                f.setFieldLength(boxed(buf.getInt()));
+                f.setDecimalPlaces(boxed(buf.getInt()));
+                int flags = buf.get();
+                f.setKeyFieldYn(flag(flags, KEY));
+                f.setRequiredYn(flag(flags, REQUIRED));
+                f.setActiveYn(flag(flags, ACTIVE));
+                long modified = buf.getLong();
+                f.setModifiedDate(modified == FieldCatalog.NO_DATE ? null : new Timestamp(modified));
+                fields.add(f);
+            }
+            return new MetadataCatalog.Snapshot(tables, fields.build(), stamp);
+        }
+        catch (RuntimeException e)
+        {
+            // A checksummed file that still does not parse was written by a broken build
+            System.err.println("Catalog snapshot " + path + " is unreadable: " + e);
+            return null;
+        }
+    }
+
+    private static void ref(String s, Map<String, Integer> refs, List<String> strings)
+    {
+        if (s != null && !refs.containsKey(s))
+        {
+            refs.put(s, strings.size());
+            strings.add(s);
+        }
+    }
+
+    private static int refOf(String s, Map<String, Integer> refs)
+    {
+        return s == null ? NULL_REF : refs.get(s);
+    }
+
+    private static String string(String[] strings, int ref)
+    {
+        return ref == NULL_REF ? null : strings[ref];
+    }
+
+    private static int nullable(Integer value)
+    {
+        return value != null ? value : FieldCatalog.NULL;
+    }
+
+    private static Integer boxed(int value)
+    {
+        return value == FieldCatalog.NULL ? null : value;
+    }
+
+    private static long millis(Timestamp timestamp)
+    {
+        return timestamp != null ? timestamp.getTime() : FieldCatalog.NO_DATE;
+    }
+
+    private static Timestamp timestamp(long millis)
+    {
+        return millis == FieldCatalog.NO_DATE ? null : new Timestamp(millis);
+    }
+
+    private static String flag(int flags, int bit)
+    {
+        return ((flags & bit) != 0 ? YesNo.YES : YesNo.NO).getCode();
+    }
+}
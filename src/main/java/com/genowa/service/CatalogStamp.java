@@ -0,0 +1,172 @@
+package com.genowa.service;
+
+import com.genowa.model.FieldCatalog;
+import com.genowa.model.GenTable;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cheap fingerprint of the catalog tables: row counts and latest modified_date of
+ * gen_tables and gen_fields, and a hash of the insurance lines in gen_ctl. Equal stamps
+ * mean a copy can be trusted without re-reading every row. Schemas without modified_date
+ * compare on counts alone, so in-place edits there need an explicit refresh.
+ */
+public final class CatalogStamp
+{
+    private static final String INS_LINES_SQL =
+        "SELECT DISTINCT ctl_value FROM gen_ctl WHERE ctl_type = 'INS_LINE' ORDER BY ctl_value";
+
+    private final int tableCount;
+    private final int fieldCount;
+    private final long tablesModified;
+    private final long fieldsModified;
+    private final int insuranceLinesHash;
+
+    /**
+     * A stamp of tables and fields only, as kept by a snapshot, which holds no insurance lines.
+     */
+    CatalogStamp(int tableCount, int fieldCount, long tablesModified, long fieldsModified)
+    {
+        this(tableCount, fieldCount, tablesModified, fieldsModified, 0);
+    }
+
+    CatalogStamp(int tableCount, int fieldCount, long tablesModified, long fieldsModified, int insuranceLinesHash)
+    {
+        this.tableCount = tableCount;
+        this.fieldCount = fieldCount;
+        this.tablesModified = tablesModified;
+        this.fieldsModified = fieldsModified;
+        this.insuranceLinesHash = insuranceLinesHash;
+    }
+
+    /**
+     * Stamp of rows already in memory; matches {@link #query} over the same rows.
+     */
+    static CatalogStamp of(List<GenTable> tables, FieldCatalog fields)
+    {
+        long tablesModified = 0;
+        for (GenTable table : tables)
+        {
+            if (table.getModifiedDate() != null)
+            {
+                tablesModified = Math.max(tablesModified, table.getModifiedDate().getTime());
+            }
+        }
+        long fieldsModified = 0;
+        for (int row = 0; row < fields.size(); row++)
+        {
+            fieldsModified = Math.max(fieldsModified, fields.getModifiedMillis(row));
+        }
+        return new CatalogStamp(tables.size(), fields.size(), tablesModified, fieldsModified);
+    }
+
+    /**
+     * Reads the current stamp with one aggregate query per table, plus the insurance lines.
+     */
+    static CatalogStamp query(Connection conn) throws SQLException
+    {
+        long[] tables = aggregate(conn, "gen_tables");
+        long[] fields = aggregate(conn, "gen_fields");
+        return new CatalogStamp((int) tables[0], (int) fields[0], tables[1], fields[1], insuranceLinesHash(conn));
+    }
+
+    // A handful of short rows, so hashing them here is as cheap as any aggregate
+    private static int insuranceLinesHash(Connection conn) throws SQLException
+    {
+        List<String> lines = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(INS_LINES_SQL);
+             ResultSet rs = stmt.executeQuery())
+        {
+            while (rs.next())
+            {
+                lines.add(rs.getString(1));
+            }
+        }
+        catch (SQLException e)
+        {
+            // Older schemas have no gen_ctl
+            return 0;
+        }
+        return lines.hashCode();
+    }
+
+    private static long[] aggregate(Connection conn, String table) throws SQLException
+    {
+        boolean hasModified;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0"))
+        {
+            hasModified = OptionalColumns.of(rs).has("modified_date");
+        }
+        String sql = "SELECT COUNT(*)" + (hasModified ? ", MAX(modified_date)" : "") + " FROM " + table;
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery())
+        {
+            rs.next();
+            Timestamp modified = hasModified ? rs.getTimestamp(2) : null;
+            return new long[] { rs.getLong(1), modified != null ? modified.getTime() : 0L };
+        }
+    }
+
+    public int getTableCount()
+    {
+        return tableCount;
+    }
+
+    public int getFieldCount()
+    {
+        return fieldCount;
+    }
+
+    public long getTablesModified()
+    {
+        return tablesModified;
+    }
+
+    public long getFieldsModified()
+    {
+        return fieldsModified;
+    }
+
+    public int getInsuranceLinesHash()
+    {
+        return insuranceLinesHash;
+    }
+
+    /**
+     * True if both stamps describe the same tables and fields, ignoring the insurance
+     * lines - for comparing with a snapshot's stamp, which has none.
+     */
+    public boolean matchesCatalog(CatalogStamp other)
+    {
+        return other != null && tableCount == other.tableCount && fieldCount == other.fieldCount
+            && tablesModified == other.tablesModified && fieldsModified == other.fieldsModified;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof CatalogStamp))
+        {
+            return false;
+        }
+        CatalogStamp other = (CatalogStamp) o;
+        return matchesCatalog(other) && insuranceLinesHash == other.insuranceLinesHash;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (Long.hashCode(tablesModified * 31 + fieldsModified) * 31 + tableCount * 17 + fieldCount) * 31
+            + insuranceLinesHash;
+    }
+
+    @Override
+    public String toString()
+    {
+        return tableCount + " tables, " + fieldCount + " fields, modified " + tablesModified + "/" + fieldsModified
+            + ", insurance lines #" + Integer.toHexString(insuranceLinesHash);
+    }
+}
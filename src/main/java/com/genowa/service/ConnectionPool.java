@@ -0,0 +1,835 @@
+package com.genowa.service;
+
+import com.genowa.metrics.ActionTrace;
+import com.genowa.metrics.QueryEvent;
+import com.genowa.metrics.QueryMetrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections handed out by {@link #borrow()} are proxies: closing one returns the
+ * physical connection to the pool instead of closing it, and any later use of that
+ * proxy fails. Each physical connection keeps an LRU cache of prepared statements
+ * keyed by SQL, so {@code prepareStatement(sql)} on a warm connection does not
+ * round-trip to the server. Idle connections are validated before they are reused.
+ * Once {@link #setMetrics} is called, every statement executed on the pool's connections
+ * is timed into a {@link QueryMetrics}.
+ */
+public class ConnectionPool implements AutoCloseable
+{
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private volatile boolean closed;
+    private volatile QueryMetrics metrics;
+    private volatile String metricsSource;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int statementCacheSize,
+                          long borrowTimeoutMillis, long validateAfterIdleMillis)
+    {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.statementCacheSize = statementCacheSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout if the pool is exhausted.
+     * The caller must close the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException
+    {
+        if (closed)
+        {
+            throw new SQLException("Connection pool is closed");
+        }
+        try
+        {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+            {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for one of " + maxSize + " pooled connections");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try
+        {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null)
+            {
+                if (isUsable(pooled))
+                {
+                    return pooled.lease();
+                }
+                pooled.closePhysical();
+            }
+            return new PooledConnection(DriverManager.getConnection(url, user, password)).lease();
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until {@code count} are idle, so the first borrowers skip the handshake.
+     */
+    public void prewarm(int count) throws SQLException
+    {
+        List<Connection> borrowed = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < Math.min(count, maxSize); i++)
+            {
+                borrowed.add(borrow());
+            }
+        }
+        finally
+        {
+            for (Connection conn : borrowed)
+            {
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Records statements prepared or created from now on into {@code metrics}, named
+     * {@code source:name} after their SQL's {@link QueryMetrics#nameOf logical name}.
+     * Statements already in a connection's cache stay unmetered until they are re-prepared.
+     */
+    public void setMetrics(QueryMetrics metrics, String source)
+    {
+        this.metricsSource = source;
+        this.metrics = metrics;
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public int getIdleCount()
+    {
+        synchronized (idle)
+        {
+            return idle.size();
+        }
+    }
+
+    public int getActiveCount()
+    {
+        return maxSize - permits.availablePermits();
+    }
+
+    @Override
+    public void close()
+    {
+        closed = true;
+        synchronized (idle)
+        {
+            for (PooledConnection pooled : idle)
+            {
+                pooled.closePhysical();
+            }
+            idle.clear();
+        }
+    }
+
+    private PooledConnection pollIdle()
+    {
+        synchronized (idle)
+        {
+            // LIFO keeps the hottest connections (and their statement caches) in use
+            return idle.pollFirst();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled)
+    {
+        try
+        {
+            if (pooled.physical.isClosed())
+            {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastReturned > validateAfterIdleMillis)
+            {
+                return pooled.physical.isValid(2);
+            }
+            return true;
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled)
+    {
+        try
+        {
+            if (pooled.broken || closed || !pooled.reset())
+            {
+                pooled.closePhysical();
+            }
+            else
+            {
+                pooled.lastReturned = System.currentTimeMillis();
+                synchronized (idle)
+                {
+                    idle.offerFirst(pooled);
+                }
+            }
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    private static boolean isConnectionFailure(SQLException e)
+    {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * Metering for one statement, or null if the pool is not metered. {@code sql} is null
+     * for plain statements, which name each call's SQL as it is executed.
+     */
+    private Metering metering(String sql)
+    {
+        QueryMetrics target = metrics;
+        if (target == null)
+        {
+            return null;
+        }
+        return new Metering(target, metricsSource, sql == null ? null : metricsSource + ":" + QueryMetrics.nameOf(sql));
+    }
+
+    /**
+     * Wraps a statement the pool does not cache so its executions are metered and it
+     * reports the leased connection rather than the physical one.
+     */
+    private Object wrap(Object statement, String sql, Connection lease)
+    {
+        Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+            new UncachedStatementHandler((Statement) statement, metering(sql), lease));
+    }
+
+    /**
+     * A physical connection plus its prepared-statement cache.
+     */
+    private final class PooledConnection
+    {
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements;
+        private long lastReturned = System.currentTimeMillis();
+        private boolean broken;
+
+        PooledConnection(Connection physical)
+        {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest)
+                {
+                    if (size() > statementCacheSize && !eldest.getValue().inUse)
+                    {
+                        eldest.getValue().closePhysical();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection lease()
+        {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler(this));
+        }
+
+        PreparedStatement prepare(String sql, Connection lease) throws SQLException
+        {
+            CachedStatement cached = statements.get(sql);
+            if (cached == null)
+            {
+                cached = new CachedStatement(physical.prepareStatement(sql), metering(sql));
+                statements.put(sql, cached);
+            }
+            else if (cached.inUse)
+            {
+                // Same SQL prepared twice within one lease - hand out an uncached statement
+                return (PreparedStatement) wrap(physical.prepareStatement(sql), sql, lease);
+            }
+            cached.inUse = true;
+            return cached.proxy(lease);
+        }
+
+        /**
+         * Puts the connection back into a clean state. Returns false if it cannot be reused.
+         */
+        boolean reset()
+        {
+            try
+            {
+                for (CachedStatement cached : statements.values())
+                {
+                    if (cached.inUse)
+                    {
+                        cached.recycle();
+                    }
+                }
+                if (!physical.getAutoCommit())
+                {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                return true;
+            }
+            catch (SQLException e)
+            {
+                return false;
+            }
+        }
+
+        void closePhysical()
+        {
+            for (Iterator<CachedStatement> it = statements.values().iterator(); it.hasNext(); )
+            {
+                it.next().closePhysical();
+                it.remove();
+            }
+            try
+            {
+                physical.close();
+            }
+            catch (SQLException e)
+            {
+                // Already gone
+            }
+        }
+    }
+
+    /**
+     * Cached prepared statement. Closing the handed-out proxy closes any open result
+     * set and puts parameters and settings back as they were prepared, but keeps the
+     * server-side statement.
+     */
+    private static final class CachedStatement
+    {
+        private final PreparedStatement physical;
+        private final Metering metering;
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+        private ResultSet openResultSet;
+        private boolean inUse;
+        private int generation;
+
+        CachedStatement(PreparedStatement physical, Metering metering) throws SQLException
+        {
+            this.physical = physical;
+            this.metering = metering;
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultMaxRows = physical.getMaxRows();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+        }
+
+        PreparedStatement proxy(Connection lease)
+        {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new StatementHandler(this, generation, lease));
+        }
+
+        void recycle() throws SQLException
+        {
+            inUse = false;
+            generation++;
+            if (metering != null)
+            {
+                metering.finish();
+            }
+            if (openResultSet != null)
+            {
+                openResultSet.close();
+                openResultSet = null;
+            }
+            physical.clearParameters();
+            // A batch abandoned after an error must not run under the next borrower
+            physical.clearBatch();
+            // Nor the last borrower's limits - a MySQL streaming read leaves fetch size at Integer.MIN_VALUE
+            // Max rows first - some drivers reject a fetch size above it
+            if (physical.getMaxRows() != defaultMaxRows)
+            {
+                physical.setMaxRows(defaultMaxRows);
+            }
+            if (physical.getFetchSize() != defaultFetchSize)
+            {
+                physical.setFetchSize(defaultFetchSize);
+            }
+            if (physical.getQueryTimeout() != defaultQueryTimeout)
+            {
+                physical.setQueryTimeout(defaultQueryTimeout);
+            }
+        }
+
+        void closePhysical()
+        {
+            try
+            {
+                physical.close();
+            }
+            catch (SQLException e)
+            {
+                // Ignore - the connection is being discarded
+            }
+        }
+    }
+
+    private final class LeaseHandler implements InvocationHandler
+    {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled)
+        {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            switch (name)
+            {
+                case "close":
+                    if (!returned)
+                    {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (returned)
+            {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try
+            {
+                if ("prepareStatement".equals(name) && args.length == 1)
+                {
+                    return pooled.prepare((String) args[0], (Connection) proxy);
+                }
+                Object result = method.invoke(pooled.physical, args);
+                if ("createStatement".equals(name))
+                {
+                    return wrap(result, null, (Connection) proxy);
+                }
+                if ("prepareStatement".equals(name))
+                {
+                    return wrap(result, (String) args[0], (Connection) proxy);
+                }
+                return result;
+            }
+            catch (InvocationTargetException e)
+            {
+                throw markBroken(e.getCause());
+            }
+            catch (SQLException e)
+            {
+                throw markBroken(e);
+            }
+        }
+
+        private Throwable markBroken(Throwable cause)
+        {
+            if (cause instanceof SQLException && isConnectionFailure((SQLException) cause))
+            {
+                pooled.broken = true;
+            }
+            return cause;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler
+    {
+        private final CachedStatement cached;
+        private final int generation;
+        private final Connection lease;
+
+        StatementHandler(CachedStatement cached, int generation, Connection lease)
+        {
+            this.cached = cached;
+            this.generation = generation;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            switch (name)
+            {
+                case "close":
+                    if (!isStale())
+                    {
+                        cached.recycle();
+                    }
+                    return null;
+                case "isClosed":
+                    return isStale() || cached.physical.isClosed();
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if (isStale())
+            {
+                throw new SQLException("Statement is closed");
+            }
+            try
+            {
+                Object result = cached.metering != null
+                    ? cached.metering.invoke(cached.physical, method, args)
+                    : method.invoke(cached.physical, args);
+                if (result instanceof ResultSet)
+                {
+                    cached.openResultSet = (ResultSet) result;
+                }
+                return result;
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+
+        // Closing the proxy, or returning its connection, recycles the statement for the next borrower
+        private boolean isStale()
+        {
+            return generation != cached.generation;
+        }
+    }
+
+    private static final class UncachedStatementHandler implements InvocationHandler
+    {
+        private final Statement physical;
+        private final Metering metering;
+        private final Connection lease;
+
+        UncachedStatementHandler(Statement physical, Metering metering, Connection lease)
+        {
+            this.physical = physical;
+            this.metering = metering;
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    if (metering != null)
+                    {
+                        metering.finish();
+                    }
+                    physical.close();
+                    return null;
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try
+            {
+                return metering != null ? metering.invoke(physical, method, args) : method.invoke(physical, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Times what one statement executes. Updates and batches are recorded as they return;
+     * a query is recorded when its result set or statement is closed, so rows streamed from
+     * the server count towards its time. Result sets are handed out behind a proxy that
+     * counts rows - {@link RowMapperCache} maps from the driver's own result set underneath.
+     */
+    private static final class Metering
+    {
+        private final QueryMetrics metrics;
+        private final String source;
+        private final String name;
+        private Execution open;
+
+        Metering(QueryMetrics metrics, String source, String name)
+        {
+            this.metrics = metrics;
+            this.source = source;
+            this.name = name;
+        }
+
+        /**
+         * Invokes {@code method} on {@code target}; failures surface as the
+         * {@link InvocationTargetException} of {@link Method#invoke}.
+         */
+        Object invoke(Statement target, Method method, Object[] args) throws Throwable
+        {
+            String call = method.getName();
+            if ("getResultSet".equals(call))
+            {
+                Object result = method.invoke(target, args);
+                return open != null && result != null ? countRows((ResultSet) result, open) : result;
+            }
+            if (!call.startsWith("execute"))
+            {
+                return method.invoke(target, args);
+            }
+
+            // A new execution closes the statement's previous result
+            finish();
+            Execution execution = new Execution(metrics, name != null ? name : nameCall(args));
+            Object result;
+            try
+            {
+                result = method.invoke(target, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                execution.finish(true);
+                throw e;
+            }
+            switch (call)
+            {
+                case "executeQuery":
+                    open = execution;
+                    return countRows((ResultSet) result, execution);
+                case "execute":
+                    if ((Boolean) result)
+                    {
+                        open = execution;
+                    }
+                    else
+                    {
+                        execution.rows = Math.max(0, target.getUpdateCount());
+                        execution.finish(false);
+                    }
+                    return result;
+                case "executeBatch":
+                    execution.rows = countBatch((int[]) result);
+                    break;
+                case "executeLargeBatch":
+                    execution.rows = countBatch((long[]) result);
+                    break;
+                default:
+                    // executeUpdate, executeLargeUpdate
+                    execution.rows = Math.max(0, ((Number) result).longValue());
+                    break;
+            }
+            execution.finish(false);
+            return result;
+        }
+
+        void finish()
+        {
+            if (open != null)
+            {
+                open.finish(false);
+                open = null;
+            }
+        }
+
+        // A plain statement's SQL comes with each execute call; a batch of them has none
+        private String nameCall(Object[] args)
+        {
+            boolean hasSql = args != null && args.length > 0 && args[0] instanceof String;
+            return source + ":" + (hasSql ? QueryMetrics.nameOf((String) args[0]) : "BATCH");
+        }
+
+        private static ResultSet countRows(ResultSet physical, Execution execution)
+        {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, new ResultHandler(physical, execution));
+        }
+
+        // Drivers that rewrite a batch report SUCCESS_NO_INFO (-2) per statement
+        private static long countBatch(int[] counts)
+        {
+            long rows = 0;
+            for (int count : counts)
+            {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+            return rows;
+        }
+
+        private static long countBatch(long[] counts)
+        {
+            long rows = 0;
+            for (long count : counts)
+            {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * One timed execution; recorded once, by whichever of its result set or statement
+     * closes first, in the metrics, as a flight recorder {@link QueryEvent} and against the
+     * {@link ActionTrace} of the thread that executed it.
+     */
+    private static final class Execution
+    {
+        private final QueryMetrics metrics;
+        private final String name;
+        private final QueryEvent event = QueryEvent.start();
+        private final ActionTrace trace = ActionTrace.current();
+        private final long start = System.nanoTime();
+        private long rows;
+        private boolean finished;
+
+        Execution(QueryMetrics metrics, String name)
+        {
+            this.metrics = metrics;
+            this.name = name;
+        }
+
+        void finish(boolean failed)
+        {
+            if (!finished)
+            {
+                finished = true;
+                long elapsed = System.nanoTime() - start;
+                metrics.record(name, elapsed, rows, 0, failed);
+                event.finish(name, rows, failed);
+                if (trace != null)
+                {
+                    trace.record(name, elapsed);
+                }
+            }
+        }
+    }
+
+    private static final class ResultHandler implements InvocationHandler
+    {
+        private final ResultSet physical;
+        private final Execution execution;
+
+        ResultHandler(ResultSet physical, Execution execution)
+        {
+            this.physical = physical;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "next":
+                    try
+                    {
+                        boolean more = physical.next();
+                        if (more)
+                        {
+                            execution.rows++;
+                        }
+                        return more;
+                    }
+                    catch (SQLException e)
+                    {
+                        execution.finish(true);
+                        throw e;
+                    }
+                case "close":
+                    execution.finish(false);
+                    physical.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try
+            {
+                return method.invoke(physical, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,19 +1,40 @@
 package com.genowa.service;
 
+import com.genowa.metrics.QueryMetrics;
+
 import java.sql.*;
 
 public class DatabaseService
 {
-    private static final String URL = "jdbc:mysql://localhost:3306/genowa";
-    private static final String USER = "genowa";
-    private static final String PASSWORD = "genowa123";
+    // rewriteBatchedStatements turns a JDBC batch of inserts into multi-row INSERTs
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/genowa?rewriteBatchedStatements=true";
+    private static final String DEFAULT_USER = "genowa";
+    private static final String DEFAULT_PASSWORD = "genowa123";
+
+    // Pool sizing - a desktop client rarely needs more than a handful of concurrent queries
+    private static final int POOL_SIZE = 8;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final long BORROW_TIMEOUT_MS = 10_000;
+    private static final long VALIDATE_AFTER_IDLE_MS = 30_000;
 
     private static DatabaseService instance;
-    private Connection connection;
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
 
+    /**
+     * Pools connections to {@code genowa.db.url} as {@code genowa.db.user}/{@code genowa.db.password}
+     * (system properties), defaulting to the local MySQL database. Every statement is
+     * timed into {@link QueryMetrics#getDefault()} under {@code db:<name>}.
+     */
     private DatabaseService()
     {
-        connect();
+        String url = System.getProperty("genowa.db.url", DEFAULT_URL);
+        dialect = SqlDialect.fromUrl(url);
+        pool = new ConnectionPool(url, System.getProperty("genowa.db.user", DEFAULT_USER),
+            System.getProperty("genowa.db.password", DEFAULT_PASSWORD), POOL_SIZE, STATEMENT_CACHE_SIZE,
+            BORROW_TIMEOUT_MS, VALIDATE_AFTER_IDLE_MS);
+        pool.setMetrics(QueryMetrics.getDefault(), "db");
+        QueryMetrics.getDefault().registerMBean();
     }
 
     public static synchronized DatabaseService getInstance()
@@ -25,11 +46,16 @@ public class DatabaseService
         return instance;
     }
 
-    private void connect()
+    /**
+     * Opens {@code connections} pooled connections ahead of need, so the first queries skip
+     * the connect handshake. Without it the pool connects on first use. A failure is
+     * logged, not thrown - queries will report it again when they run.
+     */
+    public void warmUp(int connections)
     {
         try
         {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
+            pool.prewarm(connections);
             System.out.println("Database connected successfully");
         }
         catch (SQLException e)
@@ -39,32 +65,38 @@ public class DatabaseService
         }
     }
 
-    public Connection getConnection()
+    /**
+     * Borrows a pooled connection. Close it (try-with-resources) to return it to the pool;
+     * statements prepared on it are cached per connection, so closing them is cheap too.
+     */
+    public Connection getConnection() throws SQLException
     {
-        try
-        {
-            if (connection == null || connection.isClosed())
-            {
-                connect();
-            }
-        }
-        catch (SQLException e)
-        {
-            connect();
-        }
-        return connection;
+        return pool.borrow();
+    }
+
+    public ConnectionPool getPool()
+    {
+        return pool;
+    }
+
+    public SqlDialect getDialect()
+    {
+        return dialect;
     }
 
     public boolean validateLogin(String username, String password)
     {
         // Simple validation - in production, use proper password hashing
-        String sql = "SELECT * FROM users WHERE username = ? AND password = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql))
+        String sql = "/* login */ SELECT * FROM users WHERE username = ? AND password = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql))
         {
             stmt.setString(1, username);
             stmt.setString(2, password);
-            ResultSet rs = stmt.executeQuery();
-            return rs.next();
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                return rs.next();
+            }
         }
         catch (SQLException e)
         {
@@ -75,14 +107,17 @@ public class DatabaseService
 
     public String getUserRole(String username)
     {
-        String sql = "SELECT role FROM users WHERE username = ?";
-        try (PreparedStatement stmt = getConnection().prepareStatement(sql))
+        String sql = "/* userRole */ SELECT role FROM users WHERE username = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql))
         {
             stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next())
+            try (ResultSet rs = stmt.executeQuery())
             {
-                return rs.getString("role");
+                if (rs.next())
+                {
+                    return rs.getString("role");
+                }
             }
         }
         catch (SQLException e)
@@ -94,14 +129,22 @@ public class DatabaseService
 
     public boolean testConnection()
     {
-        try
+        try (Connection conn = getConnection())
         {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+            return !conn.isClosed();
         }
         catch (SQLException e)
         {
             return false;
         }
     }
+
+    public static synchronized void shutdown()
+    {
+        if (instance != null)
+        {
+            instance.pool.close();
+            instance = null;
+        }
+    }
 }
@@ -0,0 +1,200 @@
+package com.genowa.service;
+
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenField;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of field lists keyed by table id.
+ *
+ * Misses are loaded through a {@link MetadataRepository} outside the cache lock. Hit, miss,
+ * load and eviction counts are kept for {@link #getStats()}.
+ */
+public class FieldCache
+{
+    private final MetadataRepository repository;
+    private final int maxTables;
+    private final Map<Integer, List<FieldRow>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FieldCache(MetadataRepository repository, int maxTables)
+    {
+        this.repository = repository;
+        this.maxTables = maxTables;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<FieldRow>> eldest)
+            {
+                if (size() > FieldCache.this.maxTables)
+                {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached fields for a table, or null without loading.
+     */
+    public List<FieldRow> getIfPresent(int tableId)
+    {
+        List<FieldRow> fields;
+        synchronized (entries)
+        {
+            fields = entries.get(tableId);
+        }
+        (fields != null ? hits : misses).increment();
+        return fields;
+    }
+
+    /**
+     * Cached fields for a table, loading them on a miss. Blocks on the database on a miss.
+     */
+    public List<FieldRow> get(int tableId) throws SQLException
+    {
+        return get(tableId, new CancellableQuery());
+    }
+
+    /**
+     * As {@link #get(int)}, but a load on a miss can be cancelled; a cancelled load caches nothing.
+     */
+    public List<FieldRow> get(int tableId, CancellableQuery query) throws SQLException
+    {
+        List<FieldRow> fields = getIfPresent(tableId);
+        if (fields == null)
+        {
+            fields = load(tableId, query);
+        }
+        return fields;
+    }
+
+    /**
+     * Loads any of the given tables that are not cached yet in one batched query,
+     * without counting hits or misses.
+     */
+    public void prefetch(Collection<Integer> tableIds) throws SQLException
+    {
+        List<Integer> missing = new ArrayList<>();
+        synchronized (entries)
+        {
+            for (Integer tableId : tableIds)
+            {
+                if (!entries.containsKey(tableId))
+                {
+                    missing.add(tableId);
+                }
+            }
+        }
+        if (missing.isEmpty())
+        {
+            return;
+        }
+        Map<Integer, List<GenField>> loaded = repository.loadFields(missing);
+        loads.add(loaded.size());
+        synchronized (entries)
+        {
+            for (Map.Entry<Integer, List<GenField>> entry : loaded.entrySet())
+            {
+                entries.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+    }
+
+    public void invalidateAll()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats()
+    {
+        synchronized (entries)
+        {
+            return new Stats(hits.sum(), misses.sum(), loads.sum(), evictions.sum(), entries.size());
+        }
+    }
+
+    private List<FieldRow> load(int tableId, CancellableQuery query) throws SQLException
+    {
+        List<FieldRow> fields = Collections.unmodifiableList(repository.loadFields(tableId, query));
+        loads.increment();
+        synchronized (entries)
+        {
+            entries.put(tableId, fields);
+        }
+        return fields;
+    }
+
+    public static final class Stats
+    {
+        private final long hits;
+        private final long misses;
+        private final long loads;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long loads, long evictions, int size)
+        {
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits()
+        {
+            return hits;
+        }
+
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        public long getLoads()
+        {
+            return loads;
+        }
+
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+
+        public double getHitRate()
+        {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d tables cached, %d hits, %d misses (%.0f%% hit rate), %d loads, %d evictions",
+                size, hits, misses, getHitRate() * 100, loads, evictions);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.genowa.service;
+
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Inverted index from normalized field names to the tables that carry them.
+ *
+ * Distinct names are kept sorted for prefix queries and trigram-indexed for substring
+ * queries. Each name maps to the positions (in catalog order) of its owning tables, so
+ * a query answers "which tables have a field like X" without touching gen_fields.
+ */
+public class FieldNameIndex
+{
+    private final List<GenTable> tables;
+    private final String[] names;
+    private final int[][] tablesByName;
+    private final TrigramIndex trigrams;
+
+    public FieldNameIndex(List<GenTable> tables, Function<Integer, List<FieldRow>> fieldsOf)
+    {
+        this.tables = tables;
+
+        Map<String, List<Integer>> owners = new TreeMap<>();
+        for (int i = 0; i < tables.size(); i++)
+        {
+            for (FieldRow field : fieldsOf.apply(tables.get(i).getTableId()))
+            {
+                String name = TrigramIndex.normalize(field.getFieldName());
+                if (name.isEmpty())
+                {
+                    continue;
+                }
+                List<Integer> list = owners.computeIfAbsent(name, n -> new ArrayList<>());
+                if (list.isEmpty() || list.get(list.size() - 1) != i)
+                {
+                    list.add(i);
+                }
+            }
+        }
+
+        names = owners.keySet().toArray(new String[0]);
+        tablesByName = new int[names.length][];
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        int n = 0;
+        for (List<Integer> list : owners.values())
+        {
+            tablesByName[n] = list.stream().mapToInt(Integer::intValue).toArray();
+            builder.add(n, names[n]);
+            n++;
+        }
+        trigrams = builder.build();
+    }
+
+    /**
+     * Tables with a field whose name starts with {@code query}.
+     */
+    public Match findByPrefix(String query)
+    {
+        String normalized = TrigramIndex.normalize(query);
+        if (normalized.isEmpty())
+        {
+            return Match.NONE;
+        }
+        int from = Arrays.binarySearch(names, normalized);
+        if (from < 0)
+        {
+            from = -from - 1;
+        }
+        List<Integer> hits = new ArrayList<>();
+        for (int i = from; i < names.length && names[i].startsWith(normalized); i++)
+        {
+            hits.add(i);
+        }
+        return collect(hits);
+    }
+
+    /**
+     * Tables with a field whose name contains {@code query}.
+     */
+    public Match findBySubstring(String query)
+    {
+        String normalized = TrigramIndex.normalize(query);
+        if (normalized.isEmpty())
+        {
+            return Match.NONE;
+        }
+        int[] candidates = trigrams.candidates(normalized);
+        int count = candidates != null ? candidates.length : names.length;
+        List<Integer> hits = new ArrayList<>();
+        for (int c = 0; c < count; c++)
+        {
+            int name = candidates != null ? candidates[c] : c;
+            if (names[name].contains(normalized))
+            {
+                hits.add(name);
+            }
+        }
+        return collect(hits);
+    }
+
+    public int getDistinctNameCount()
+    {
+        return names.length;
+    }
+
+    private Match collect(List<Integer> nameHits)
+    {
+        if (nameHits.isEmpty())
+        {
+            return Match.NONE;
+        }
+        BitSet owners = new BitSet(tables.size());
+        Set<String> matchedNames = new HashSet<>();
+        for (int name : nameHits)
+        {
+            matchedNames.add(names[name]);
+            for (int table : tablesByName[name])
+            {
+                owners.set(table);
+            }
+        }
+        List<GenTable> matchedTables = new ArrayList<>(owners.cardinality());
+        for (int i = owners.nextSetBit(0); i >= 0; i = owners.nextSetBit(i + 1))
+        {
+            matchedTables.add(tables.get(i));
+        }
+        return new Match(matchedTables, matchedNames);
+    }
+
+    /**
+     * Result of a field-name query: owning tables in catalog order, and the normalized
+     * field names that matched (for highlighting).
+     */
+    public static final class Match
+    {
+        public static final Match NONE = new Match(Collections.emptyList(), Collections.emptySet());
+
+        private final List<GenTable> tables;
+        private final Set<String> fieldNames;
+
+        Match(List<GenTable> tables, Set<String> fieldNames)
+        {
+            this.tables = Collections.unmodifiableList(tables);
+            this.fieldNames = Collections.unmodifiableSet(fieldNames);
+        }
+
+        public List<GenTable> getTables()
+        {
+            return tables;
+        }
+
+        public Set<String> getFieldNames()
+        {
+            return fieldNames;
+        }
+
+        public boolean matches(FieldRow field)
+        {
+            return !fieldNames.isEmpty() && fieldNames.contains(TrigramIndex.normalize(field.getFieldName()));
+        }
+    }
+}
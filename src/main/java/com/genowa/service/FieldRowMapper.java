@@ -0,0 +1,76 @@
+package com.genowa.service;
+
+import com.genowa.model.GenField;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * gen_fields row mapper compiled for one result shape; columns the shape lacks read as null.
+ */
+final class FieldRowMapper implements RowMapper<GenField>
+{
+    private final StringDictionary strings;
+    private final int fieldId;
+    private final int tableId;
+    private final int fieldName;
+    private final int fieldDesc;
+    private final int fieldType;
+    private final int fieldLength;
+    private final int fieldDecimal;
+    private final int seqNo;
+    private final int keyFieldYn;
+    private final int requiredYn;
+    private final int activeYn;
+    private final int createdBy;
+    private final int createdDate;
+    private final int modifiedBy;
+    private final int modifiedDate;
+
+    FieldRowMapper(OptionalColumns columns, StringDictionary strings)
+    {
+        this.strings = strings;
+        this.fieldId = columns.require("field_id");
+        this.tableId = columns.require("table_id");
+        this.fieldName = columns.require("field_name");
+        this.fieldDesc = columns.indexOf("field_desc");
+        this.fieldType = columns.indexOf("field_type");
+        this.fieldLength = columns.indexOf("field_length");
+        this.fieldDecimal = columns.indexOf("field_decimal");
+        this.seqNo = columns.indexOf("seq_no");
+        this.keyFieldYn = columns.indexOf("key_field_yn");
+        this.requiredYn = columns.indexOf("required_yn");
+        this.activeYn = columns.indexOf("active_yn");
+        this.createdBy = columns.indexOf("created_by");
+        this.createdDate = columns.indexOf("created_date");
+        this.modifiedBy = columns.indexOf("modified_by");
+        this.modifiedDate = columns.indexOf("modified_date");
+    }
+
+    static RowMapperCache<GenField> cache(StringDictionary strings)
+    {
+        return new RowMapperCache<>(columns -> new FieldRowMapper(columns, strings));
+    }
+
+    @Override
+    public GenField map(ResultSet rs) throws SQLException
+    {
+        GenField field = new GenField();
+        field.setFieldId(rs.getInt(fieldId));
+        field.setTableId(rs.getInt(tableId));
+        field.setFieldName(rs.getString(fieldName));
+        field.setFieldDesc(OptionalColumns.getString(rs, fieldDesc));
+        field.setFieldType(OptionalColumns.getCode(rs, fieldType, strings));
+        field.setFieldLength(OptionalColumns.getInteger(rs, fieldLength));
+        field.setDecimalPlaces(OptionalColumns.getInteger(rs, fieldDecimal));
+        field.setSeqNo(OptionalColumns.getInteger(rs, seqNo));
+        field.setKeyFieldYn(OptionalColumns.getFlag(rs, keyFieldYn));
+        field.setRequiredYn(OptionalColumns.getFlag(rs, requiredYn));
+        field.setActiveYn(OptionalColumns.getFlag(rs, activeYn));
+        field.setCreatedBy(OptionalColumns.getCode(rs, createdBy, strings));
+        field.setCreatedDate(OptionalColumns.getTimestamp(rs, createdDate));
+        field.setModifiedBy(OptionalColumns.getCode(rs, modifiedBy, strings));
+        field.setModifiedDate(OptionalColumns.getTimestamp(rs, modifiedDate));
+        return field;
+    }
+}
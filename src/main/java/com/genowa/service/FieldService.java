@@ -0,0 +1,154 @@
+package com.genowa.service;
+
+import com.genowa.model.GenField;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads field definitions from gen_fields - one table, many tables in batched queries,
+ * or the whole catalog as a stream.
+ */
+public class FieldService
+{
+    // Every IN (...) chunk uses this many placeholders so all chunks share one cached statement
+    private static final int BATCH_SIZE = 500;
+
+    private static final String TABLE_FIELDS_SQL =
+        "/* fields.byTable */ SELECT * FROM gen_fields WHERE table_id = ? ORDER BY seq_no";
+
+    private static final String ALL_FIELDS_SQL =
+        "/* fields.all */ SELECT * FROM gen_fields ORDER BY table_id, seq_no";
+
+    private static final String BATCH_FIELDS_SQL =
+        "/* fields.batch */ SELECT * FROM gen_fields WHERE table_id IN (" +
+        String.join(", ", Collections.nCopies(BATCH_SIZE, "?")) +
+        ") ORDER BY table_id, seq_no";
+
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final RowMapperCache<GenField> mappers;
+
+    public FieldService(ConnectionPool pool, SqlDialect dialect)
+    {
+        this(pool, dialect, new StringDictionary());
+    }
+
+    /**
+     * @param strings shared by every field this service maps, for type codes and user names
+     */
+    public FieldService(ConnectionPool pool, SqlDialect dialect, StringDictionary strings)
+    {
+        this.pool = pool;
+        this.dialect = dialect;
+        this.mappers = FieldRowMapper.cache(strings);
+    }
+
+    /**
+     * Fields of one table in seq_no order.
+     */
+    public List<GenField> loadFields(int tableId) throws SQLException
+    {
+        return loadFields(tableId, new CancellableQuery());
+    }
+
+    /**
+     * Fields of one table in seq_no order; {@code query} can abort the read from another
+     * thread, in which case this throws and returns nothing.
+     */
+    public List<GenField> loadFields(int tableId, CancellableQuery query) throws SQLException
+    {
+        query.checkCancelled();
+        List<GenField> fields = new ArrayList<>();
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(TABLE_FIELDS_SQL))
+        {
+            stmt.setInt(1, tableId);
+            query.attach(stmt);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                RowMapper<GenField> mapper = mappers.forResult(rs);
+                while (rs.next())
+                {
+                    fields.add(mapper.map(rs));
+                }
+            }
+            finally
+            {
+                query.detach();
+            }
+        }
+        query.checkCancelled();
+        return fields;
+    }
+
+    /**
+     * Fields of many tables, read {@value #BATCH_SIZE} tables per query on one connection.
+     * Every requested id is present in the result, in request order, with its fields in
+     * seq_no order (empty if it has none).
+     */
+    public Map<Integer, List<GenField>> loadFields(Collection<Integer> tableIds) throws SQLException
+    {
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(tableIds));
+        Map<Integer, List<GenField>> fieldsByTable = new LinkedHashMap<>();
+        for (Integer id : ids)
+        {
+            fieldsByTable.put(id, new ArrayList<>());
+        }
+        if (ids.isEmpty())
+        {
+            return fieldsByTable;
+        }
+
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(BATCH_FIELDS_SQL))
+        {
+            for (int from = 0; from < ids.size(); from += BATCH_SIZE)
+            {
+                int to = Math.min(from + BATCH_SIZE, ids.size());
+                for (int i = 0; i < BATCH_SIZE; i++)
+                {
+                    // Pad a short final chunk by repeating its last id - duplicates in IN are harmless
+                    stmt.setInt(i + 1, ids.get(Math.min(from + i, to - 1)));
+                }
+                try (ResultSet rs = stmt.executeQuery())
+                {
+                    RowMapper<GenField> mapper = mappers.forResult(rs);
+                    while (rs.next())
+                    {
+                        GenField field = mapper.map(rs);
+                        fieldsByTable.get(field.getTableId()).add(field);
+                    }
+                }
+            }
+        }
+        return fieldsByTable;
+    }
+
+    /**
+     * Streams every field in the catalog, ordered by table_id then seq_no, without
+     * buffering the result set. Consecutive fields of one table arrive together.
+     */
+    public void forEachField(MetadataRepository.RowHandler<GenField> handler) throws SQLException
+    {
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(ALL_FIELDS_SQL))
+        {
+            dialect.streamResults(stmt);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                RowMapper<GenField> mapper = mappers.forResult(rs);
+                while (rs.next())
+                {
+                    handler.accept(mapper.map(rs));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.genowa.service;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MetadataRepository} over gen_tables, gen_fields and gen_ctl in one database,
+ * read through a {@link ConnectionPool}. The SQL is portable; {@link SqlDialect} covers
+ * the driver differences.
+ */
+public class JdbcMetadataRepository implements MetadataRepository
+{
+    private static final String TABLES_SQL = "/* tables.all */ SELECT * FROM gen_tables ORDER BY table_name";
+
+    private static final String INS_LINES_SQL =
+        "/* insLines */ SELECT DISTINCT ctl_value FROM gen_ctl WHERE ctl_type = 'INS_LINE' ORDER BY ctl_value";
+
+    private final String name;
+    private final ConnectionPool pool;
+    private final SqlDialect dialect;
+    private final RowMapperCache<GenTable> tableMappers;
+    private final FieldService fieldService;
+    private final TablePageSource tablePages;
+
+    /**
+     * @param name    shown in log messages
+     * @param strings shared by every row this repository maps, for codes and user names
+     */
+    public JdbcMetadataRepository(String name, ConnectionPool pool, SqlDialect dialect, StringDictionary strings)
+    {
+        this.name = name;
+        this.pool = pool;
+        this.dialect = dialect;
+        this.tableMappers = TableRowMapper.cache(strings);
+        this.fieldService = new FieldService(pool, dialect, strings);
+        this.tablePages = new TablePageSource(pool, strings);
+    }
+
+    /**
+     * The primary database behind {@link DatabaseService}.
+     */
+    public static JdbcMetadataRepository primary(DatabaseService dbService, StringDictionary strings)
+    {
+        return new JdbcMetadataRepository("primary", dbService.getPool(), dbService.getDialect(), strings);
+    }
+
+    @Override
+    public List<GenTable> loadTables() throws SQLException
+    {
+        List<GenTable> tables = new ArrayList<>();
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(TABLES_SQL))
+        {
+            dialect.streamResults(stmt);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                RowMapper<GenTable> mapper = tableMappers.forResult(rs);
+                while (rs.next())
+                {
+                    tables.add(mapper.map(rs));
+                }
+            }
+        }
+        return tables;
+    }
+
+    @Override
+    public List<GenField> loadFields(int tableId, CancellableQuery query) throws SQLException
+    {
+        return fieldService.loadFields(tableId, query);
+    }
+
+    @Override
+    public Map<Integer, List<GenField>> loadFields(Collection<Integer> tableIds) throws SQLException
+    {
+        return fieldService.loadFields(tableIds);
+    }
+
+    @Override
+    public void forEachField(RowHandler<GenField> handler) throws SQLException
+    {
+        fieldService.forEachField(handler);
+    }
+
+    @Override
+    public List<String> loadInsuranceLines() throws SQLException
+    {
+        List<String> lines = new ArrayList<>();
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(INS_LINES_SQL);
+             ResultSet rs = stmt.executeQuery())
+        {
+            while (rs.next())
+            {
+                lines.add(rs.getString("ctl_value"));
+            }
+        }
+        return lines;
+    }
+
+    @Override
+    public PageSource<GenTable> getTablePages()
+    {
+        return tablePages;
+    }
+
+    @Override
+    public CatalogStamp stamp() throws SQLException
+    {
+        try (Connection conn = pool.borrow())
+        {
+            return CatalogStamp.query(conn);
+        }
+    }
+
+    public SqlDialect getDialect()
+    {
+        return dialect;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + dialect + ")";
+    }
+}
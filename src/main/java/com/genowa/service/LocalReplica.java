@@ -0,0 +1,382 @@
+package com.genowa.service;
+
+import com.genowa.metrics.QueryMetrics;
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded H2 copy of another {@link MetadataRepository}, answering reads from local disk.
+ *
+ * The replica holds gen_tables, gen_fields and the INS_LINE rows of gen_ctl, plus the
+ * {@link CatalogStamp} of the source at the last copy. {@link #stamp()} compares that with
+ * the source's current stamp and, if they differ, replaces the copy in one transaction -
+ * readers keep seeing the previous copy until it commits. {@link #resync()} replaces it
+ * whatever the stamp says. The first read of a session
+ * does the same check; if the source cannot be reached a previous copy is served as is.
+ * Until a first copy exists, reads go to the source.
+ */
+public class LocalReplica implements MetadataRepository
+{
+    private static final int POOL_SIZE = 4;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+    private static final long BORROW_TIMEOUT_MS = 10_000;
+    private static final long VALIDATE_AFTER_IDLE_MS = 60_000;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS gen_tables (table_id INT PRIMARY KEY, table_name VARCHAR NOT NULL, "
+            + "table_desc VARCHAR, parent_table_id INT, level_type_code VARCHAR, key_length INT, data_length INT, "
+            + "table_type VARCHAR, rate_table_type VARCHAR, has_detail_yn CHAR(1), active_yn CHAR(1), "
+            + "created_by VARCHAR, created_date TIMESTAMP, modified_by VARCHAR, modified_date TIMESTAMP)",
+        "CREATE INDEX IF NOT EXISTS gen_tables_name ON gen_tables (table_name, table_id)",
+        "CREATE TABLE IF NOT EXISTS gen_fields (field_id INT PRIMARY KEY, table_id INT NOT NULL, "
+            + "field_name VARCHAR NOT NULL, field_desc VARCHAR, field_type VARCHAR, field_length INT, "
+            + "field_decimal INT, seq_no INT, key_field_yn CHAR(1), required_yn CHAR(1), active_yn CHAR(1), "
+            + "created_by VARCHAR, created_date TIMESTAMP, modified_by VARCHAR, modified_date TIMESTAMP)",
+        "CREATE INDEX IF NOT EXISTS gen_fields_table ON gen_fields (table_id, seq_no)",
+        "CREATE TABLE IF NOT EXISTS gen_ctl (ctl_type VARCHAR NOT NULL, ctl_value VARCHAR)",
+        "CREATE TABLE IF NOT EXISTS replica_state (state_id INT PRIMARY KEY, table_count INT, field_count INT, "
+            + "tables_modified BIGINT, fields_modified BIGINT, synced_date TIMESTAMP)",
+        // Replicas made before the stamp covered gen_ctl read 0 here, so they re-copy once
+        "ALTER TABLE replica_state ADD COLUMN IF NOT EXISTS insurance_lines_hash INT"
+    };
+
+    private static final String INSERT_TABLE_SQL =
+        "INSERT INTO gen_tables (table_id, table_name, table_desc, parent_table_id, level_type_code, key_length, "
+            + "data_length, table_type, rate_table_type, has_detail_yn, active_yn, created_by, created_date, "
+            + "modified_by, modified_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_FIELD_SQL =
+        "INSERT INTO gen_fields (field_id, table_id, field_name, field_desc, field_type, field_length, "
+            + "field_decimal, seq_no, key_field_yn, required_yn, active_yn, created_by, created_date, "
+            + "modified_by, modified_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final MetadataRepository source;
+    private final ConnectionPool pool;
+    private final JdbcMetadataRepository replica;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile CatalogStamp synced;
+    private volatile boolean checked;
+
+    private LocalReplica(MetadataRepository source, ConnectionPool pool, StringDictionary strings)
+    {
+        this.source = source;
+        this.pool = pool;
+        this.replica = new JdbcMetadataRepository("replica", pool, SqlDialect.H2, strings);
+    }
+
+    /**
+     * Opens (creating if needed) the replica database at {@code file} - H2 adds the
+     * {@code .mv.db} suffix - as a copy of {@code source}.
+     */
+    public static LocalReplica open(Path file, MetadataRepository source, StringDictionary strings) throws SQLException
+    {
+        String url = "jdbc:h2:file:" + file.toAbsolutePath() + ";DATABASE_TO_LOWER=TRUE";
+        ConnectionPool pool = new ConnectionPool(url, "genowa", "", POOL_SIZE, STATEMENT_CACHE_SIZE,
+            BORROW_TIMEOUT_MS, VALIDATE_AFTER_IDLE_MS);
+        pool.setMetrics(QueryMetrics.getDefault(), "replica");
+        LocalReplica replica = new LocalReplica(source, pool, strings);
+        try
+        {
+            replica.synced = replica.createSchema();
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            pool.close();
+            throw e;
+        }
+        return replica;
+    }
+
+    /**
+     * {@code ~/.genowa/replica}, or the {@code genowa.replica} system property; null if that
+     * property is {@code none}, meaning reads go straight to the primary database.
+     */
+    public static Path defaultFile()
+    {
+        String configured = System.getProperty("genowa.replica");
+        if ("none".equalsIgnoreCase(configured))
+        {
+            return null;
+        }
+        return configured != null
+            ? Path.of(configured)
+            : Path.of(System.getProperty("user.home"), ".genowa", "replica");
+    }
+
+    @Override
+    public List<GenTable> loadTables() throws SQLException
+    {
+        return reader().loadTables();
+    }
+
+    @Override
+    public List<GenField> loadFields(int tableId, CancellableQuery query) throws SQLException
+    {
+        return reader().loadFields(tableId, query);
+    }
+
+    @Override
+    public Map<Integer, List<GenField>> loadFields(Collection<Integer> tableIds) throws SQLException
+    {
+        return reader().loadFields(tableIds);
+    }
+
+    @Override
+    public void forEachField(RowHandler<GenField> handler) throws SQLException
+    {
+        reader().forEachField(handler);
+    }
+
+    @Override
+    public List<String> loadInsuranceLines() throws SQLException
+    {
+        return reader().loadInsuranceLines();
+    }
+
+    @Override
+    public PageSource<GenTable> getTablePages()
+    {
+        // Resolved per call, so pages switch to the replica once its first copy lands
+        return new PageSource<>()
+        {
+            @Override
+            public int count() throws SQLException
+            {
+                return reader().getTablePages().count();
+            }
+
+            @Override
+            public List<GenTable> fetchAfter(GenTable after, int limit) throws SQLException
+            {
+                return reader().getTablePages().fetchAfter(after, limit);
+            }
+
+            @Override
+            public List<GenTable> fetchAt(int offset, int limit) throws SQLException
+            {
+                return reader().getTablePages().fetchAt(offset, limit);
+            }
+        };
+    }
+
+    /**
+     * Brings the copy up to date with the source if the source's stamp has moved, and
+     * returns that stamp.
+     */
+    @Override
+    public CatalogStamp stamp() throws SQLException
+    {
+        syncLock.lock();
+        try
+        {
+            CatalogStamp current = source.stamp();
+            if (!current.equals(synced))
+            {
+                copy(current);
+            }
+            checked = true;
+            return current;
+        }
+        finally
+        {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the copy with the source's current rows, whether or not its stamp has moved.
+     */
+    @Override
+    public CatalogStamp resync() throws SQLException
+    {
+        syncLock.lock();
+        try
+        {
+            CatalogStamp current = source.stamp();
+            copy(current);
+            checked = true;
+            return current;
+        }
+        finally
+        {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Stamp of the source at the last completed copy, or null if there is none yet.
+     */
+    public CatalogStamp getSyncedStamp()
+    {
+        return synced;
+    }
+
+    @Override
+    public void close()
+    {
+        pool.close();
+    }
+
+    private MetadataRepository reader() throws SQLException
+    {
+        if (!checked)
+        {
+            try
+            {
+                stamp();
+            }
+            catch (SQLException e)
+            {
+                if (synced == null)
+                {
+                    throw e;
+                }
+                // Serve the previous session's copy; the next stamp() retries the source
+                System.err.println("Metadata source unavailable, reading local replica from " + synced
+                    + ": " + e.getMessage());
+                checked = true;
+            }
+        }
+        return synced != null ? replica : source;
+    }
+
+    private CatalogStamp createSchema() throws SQLException
+    {
+        try (Connection conn = pool.borrow();
+             Statement stmt = conn.createStatement())
+        {
+            for (String ddl : SCHEMA)
+            {
+                stmt.execute(ddl);
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                "SELECT table_count, field_count, tables_modified, fields_modified, insurance_lines_hash FROM replica_state"))
+            {
+                return rs.next()
+                    ? new CatalogStamp(rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getLong(4), rs.getInt(5))
+                    : null;
+            }
+        }
+    }
+
+    private void copy(CatalogStamp stamp) throws SQLException
+    {
+        long start = System.nanoTime();
+        int[] fieldCount = new int[1];
+        try (Connection conn = pool.borrow())
+        {
+            conn.setAutoCommit(false);
+            try
+            {
+                try (Statement stmt = conn.createStatement())
+                {
+                    stmt.executeUpdate("DELETE FROM gen_fields");
+                    stmt.executeUpdate("DELETE FROM gen_tables");
+                    stmt.executeUpdate("DELETE FROM gen_ctl");
+                    stmt.executeUpdate("DELETE FROM replica_state");
+                }
+
+                List<GenTable> tables = source.loadTables();
+                try (PreparedStatement insert = conn.prepareStatement(INSERT_TABLE_SQL))
+                {
+                    for (GenTable t : tables)
+                    {
+                        bind(insert, t.getTableId(), t.getTableName(), t.getTableDesc(), t.getParentTableId(),
+                            t.getLevelTypeCode(), t.getKeyLength(), t.getDataLength(), t.getTableType(),
+                            t.getRateTableType(), t.getHasDetailYn(), t.getActiveYn(), t.getCreatedBy(),
+                            t.getCreatedDate(), t.getModifiedBy(), t.getModifiedDate());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+
+                try (PreparedStatement insert = conn.prepareStatement(INSERT_FIELD_SQL))
+                {
+                    source.forEachField(f ->
+                    {
+                        bind(insert, f.getFieldId(), f.getTableId(), f.getFieldName(), f.getFieldDesc(),
+                            f.getFieldType(), f.getFieldLength(), f.getDecimalPlaces(), f.getSeqNo(),
+                            f.getKeyFieldYn(), f.getRequiredYn(), f.getActiveYn(), f.getCreatedBy(),
+                            f.getCreatedDate(), f.getModifiedBy(), f.getModifiedDate());
+                        insert.addBatch();
+                        if (++fieldCount[0] % BATCH_SIZE == 0)
+                        {
+                            insert.executeBatch();
+                        }
+                    });
+                    insert.executeBatch();
+                }
+
+                copyInsuranceLines(conn);
+
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO replica_state (state_id, "
+                    + "table_count, field_count, tables_modified, fields_modified, insurance_lines_hash, synced_date) "
+                    + "VALUES (1, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)"))
+                {
+                    bind(insert, stamp.getTableCount(), stamp.getFieldCount(), stamp.getTablesModified(),
+                        stamp.getFieldsModified(), stamp.getInsuranceLinesHash());
+                    insert.executeUpdate();
+                }
+                conn.commit();
+                synced = stamp;
+                System.out.println("Local replica synced: " + tables.size() + " tables, " + fieldCount[0]
+                    + " fields in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                conn.rollback();
+                throw e;
+            }
+            finally
+            {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void copyInsuranceLines(Connection conn) throws SQLException
+    {
+        List<String> lines;
+        try
+        {
+            lines = source.loadInsuranceLines();
+        }
+        catch (SQLException e)
+        {
+            // Older schemas have no gen_ctl; the replica's stays empty
+            return;
+        }
+        try (PreparedStatement insert = conn.prepareStatement(
+            "INSERT INTO gen_ctl (ctl_type, ctl_value) VALUES ('INS_LINE', ?)"))
+        {
+            for (String line : lines)
+            {
+                insert.setString(1, line);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Object... values) throws SQLException
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            stmt.setObject(i + 1, values[i]);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "replica of " + source;
+    }
+}
@@ -0,0 +1,467 @@
+package com.genowa.service;
+
+import com.genowa.metrics.CatalogLoadEvent;
+import com.genowa.metrics.SearchEvent;
+import com.genowa.model.FieldCatalog;
+import com.genowa.model.FieldRow;
+import com.genowa.model.GenTable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory snapshot of every table and field definition.
+ *
+ * The whole catalog is read from a {@link MetadataRepository} with two streaming queries -
+ * one over gen_tables, one over gen_fields ordered by table - and fields are packed into a
+ * columnar {@link FieldCatalog} as they stream in, so no per-field bean stays resident.
+ * Screens read from the snapshot instead of querying per table. By default the repository
+ * is a {@link LocalReplica} of the primary database, so reloads read local disk.
+ *
+ * Every snapshot read from the database is saved to a local {@link CatalogSnapshotFile}.
+ * At startup that file is mapped instead of waiting for the database, and a background
+ * check compares its {@link CatalogStamp} with the database's; if they differ, the catalog
+ * reloads and listeners are told about the new snapshot.
+ */
+public class MetadataCatalog
+{
+    private static final int FIELD_CACHE_TABLES = 256;
+
+    private static MetadataCatalog instance;
+
+    private final MetadataRepository repository;
+    private final StringDictionary strings;
+    private final FieldCache fieldCache;
+    private final CatalogSnapshotFile snapshotFile;
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile List<String> insuranceLines;
+
+    /**
+     * @param strings the dictionary {@code repository} maps rows with
+     */
+    public MetadataCatalog(MetadataRepository repository, StringDictionary strings, CatalogSnapshotFile snapshotFile)
+    {
+        this.repository = repository;
+        this.strings = strings;
+        this.snapshotFile = snapshotFile;
+        this.fieldCache = new FieldCache(repository, FIELD_CACHE_TABLES);
+    }
+
+    public static synchronized MetadataCatalog getInstance()
+    {
+        if (instance == null)
+        {
+            StringDictionary strings = new StringDictionary();
+            MetadataRepository primary = JdbcMetadataRepository.primary(DatabaseService.getInstance(), strings);
+            instance = new MetadataCatalog(openReplica(primary, strings), strings, CatalogSnapshotFile.defaultFile());
+        }
+        return instance;
+    }
+
+    public static synchronized void shutdown()
+    {
+        if (instance != null)
+        {
+            instance.repository.close();
+            instance = null;
+        }
+    }
+
+    private static MetadataRepository openReplica(MetadataRepository primary, StringDictionary strings)
+    {
+        Path file = LocalReplica.defaultFile();
+        if (file == null)
+        {
+            return primary;
+        }
+        try
+        {
+            return LocalReplica.open(file, primary, strings);
+        }
+        catch (SQLException e)
+        {
+            // Typically another instance holding the file - read the primary directly
+            System.err.println("Local replica " + file + " unavailable, reading " + primary + ": " + e.getMessage());
+            return primary;
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading it first if nothing has been loaded yet - from
+     * the local snapshot file when there is one, otherwise from the database. May block on
+     * the database - call from a background thread.
+     */
+    public Snapshot getSnapshot() throws SQLException
+    {
+        Snapshot current = snapshot;
+        if (current != null)
+        {
+            return current;
+        }
+        loadLock.lock();
+        try
+        {
+            if (snapshot == null)
+            {
+                Snapshot saved = readSnapshotFile();
+                if (saved != null)
+                {
+                    snapshot = saved;
+                    Thread.ofVirtual().name("genowa-catalog-check").start(this::checkFreshness);
+                }
+                else
+                {
+                    snapshot = load();
+                }
+            }
+            return snapshot;
+        }
+        finally
+        {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current snapshot without loading, or null if none is loaded yet.
+     */
+    public Snapshot peek()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Fields of one table if they are available without a query - from the snapshot, or
+     * from the field cache while the snapshot is still loading - otherwise null.
+     */
+    public List<FieldRow> peekFields(int tableId)
+    {
+        Snapshot current = snapshot;
+        return current != null ? current.getFields(tableId) : fieldCache.getIfPresent(tableId);
+    }
+
+    /**
+     * Fields of one table. Before the snapshot is loaded this reads the single table
+     * through the field cache rather than waiting for the whole catalog.
+     */
+    public List<FieldRow> getFields(int tableId) throws SQLException
+    {
+        return getFields(tableId, new CancellableQuery());
+    }
+
+    /**
+     * As {@link #getFields(int)}, with a handle to cancel the read if the caller loses interest.
+     */
+    public List<FieldRow> getFields(int tableId, CancellableQuery query) throws SQLException
+    {
+        Snapshot current = snapshot;
+        return current != null ? current.getFields(tableId) : fieldCache.get(tableId, query);
+    }
+
+    /**
+     * Warms the field cache for tables the user is likely to open next. No-op once the
+     * snapshot is loaded, since every table's fields are then in memory.
+     */
+    public void prefetchFields(Collection<Integer> tableIds) throws SQLException
+    {
+        if (snapshot == null)
+        {
+            fieldCache.prefetch(tableIds);
+        }
+    }
+
+    /**
+     * Insurance line codes, read once and kept until the next {@link #refresh()}.
+     */
+    public List<String> getInsuranceLines() throws SQLException
+    {
+        List<String> lines = insuranceLines;
+        if (lines == null)
+        {
+            lines = List.copyOf(repository.loadInsuranceLines());
+            insuranceLines = lines;
+        }
+        return lines;
+    }
+
+    public MetadataRepository getRepository()
+    {
+        return repository;
+    }
+
+    /**
+     * Shared instances of the type codes, level codes, flags and user names of every row
+     * this catalog maps.
+     */
+    public StringDictionary getStrings()
+    {
+        return strings;
+    }
+
+    public FieldCache getFieldCache()
+    {
+        return fieldCache;
+    }
+
+    /**
+     * Replaces the snapshot with a fresh read of the database.
+     */
+    public Snapshot refresh() throws SQLException
+    {
+        // A replica re-copies unconditionally - the stamp is only good enough for the background check
+        repository.resync();
+        insuranceLines = null;
+        return reload();
+    }
+
+    private Snapshot reload() throws SQLException
+    {
+        Snapshot loaded;
+        loadLock.lock();
+        try
+        {
+            fieldCache.invalidateAll();
+            loaded = load();
+            snapshot = loaded;
+        }
+        finally
+        {
+            loadLock.unlock();
+        }
+        for (Consumer<Snapshot> listener : listeners)
+        {
+            listener.accept(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Called, on the loading thread, whenever the snapshot is replaced after the first load -
+     * by {@link #refresh()} or because a saved snapshot turned out to be stale.
+     */
+    public void addListener(Consumer<Snapshot> listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops calling {@code listener}; screens call this when they are discarded, since the
+     * catalog outlives them.
+     */
+    public void removeListener(Consumer<Snapshot> listener)
+    {
+        listeners.remove(listener);
+    }
+
+    private Snapshot readSnapshotFile()
+    {
+        long start = System.nanoTime();
+        CatalogLoadEvent event = CatalogLoadEvent.start();
+        try
+        {
+            Snapshot saved = snapshotFile.read();
+            if (saved != null)
+            {
+                event.finish(snapshotFile.getPath().toString(), saved.getTableCount(), saved.getFieldCount());
+                System.out.println("Metadata catalog mapped from " + snapshotFile.getPath() + ": "
+                    + saved.getTableCount() + " tables, " + saved.getFieldCount() + " fields in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+            return saved;
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not read catalog snapshot " + snapshotFile.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Runs in the background after a saved snapshot was shown
+    private void checkFreshness()
+    {
+        try
+        {
+            CatalogStamp current = repository.stamp();
+            Snapshot shown = snapshot;
+            if (current.matchesCatalog(shown.getStamp()))
+            {
+                System.out.println("Catalog snapshot is current (" + current + ")");
+                return;
+            }
+            System.out.println("Catalog snapshot is stale (" + shown.getStamp() + " vs " + current + "), reloading");
+            reload();
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Catalog freshness check failed: " + e.getMessage());
+        }
+    }
+
+    private Snapshot load() throws SQLException
+    {
+        long start = System.nanoTime();
+        CatalogLoadEvent event = CatalogLoadEvent.start();
+        List<GenTable> tables = repository.loadTables();
+        FieldCatalog.Builder fields = FieldCatalog.builder();
+        repository.forEachField(fields::add);
+
+        FieldCatalog fieldCatalog = fields.build();
+        Snapshot loaded = new Snapshot(tables, fieldCatalog, CatalogStamp.of(tables, fieldCatalog));
+        event.finish(repository.toString(), tables.size(), loaded.getFieldCount());
+        System.out.println("Metadata catalog loaded from " + repository + ": " + tables.size() + " tables, " + loaded.getFieldCount()
+            + " fields in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        try
+        {
+            snapshotFile.write(loaded);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Could not save catalog snapshot " + snapshotFile.getPath() + ": " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * Immutable view of the catalog at the time it was loaded.
+     */
+    public static final class Snapshot
+    {
+        private final List<GenTable> tables;
+        private final Map<Integer, GenTable> tablesById;
+        private final FieldCatalog fields;
+        private final CatalogStamp stamp;
+        private final TableSearchIndex searchIndex;
+        private final FieldNameIndex fieldIndex;
+
+        Snapshot(List<GenTable> tables, FieldCatalog fields, CatalogStamp stamp)
+        {
+            this.tables = Collections.unmodifiableList(tables);
+            this.tablesById = new HashMap<>();
+            for (GenTable table : tables)
+            {
+                tablesById.put(table.getTableId(), table);
+            }
+            this.fields = fields;
+            this.stamp = stamp;
+            // Built here, on the loading thread, so the first keystroke does not pay for it
+            this.searchIndex = new TableSearchIndex(this.tables);
+            this.fieldIndex = new FieldNameIndex(this.tables, this::getFields);
+        }
+
+        /**
+         * All tables, ordered by name.
+         */
+        public List<GenTable> getTables()
+        {
+            return tables;
+        }
+
+        public GenTable getTable(int tableId)
+        {
+            return tablesById.get(tableId);
+        }
+
+        /**
+         * Fields of one table in seq_no order; empty if the table has none.
+         */
+        public List<FieldRow> getFields(int tableId)
+        {
+            return fields.getFields(tableId);
+        }
+
+        /**
+         * Every field in columnar form, for scans that should not go through per-row views.
+         */
+        public FieldCatalog getFieldCatalog()
+        {
+            return fields;
+        }
+
+        public TableSearchIndex getSearchIndex()
+        {
+            return searchIndex;
+        }
+
+        public FieldNameIndex getFieldIndex()
+        {
+            return fieldIndex;
+        }
+
+        /**
+         * Tables matching by name or description come first (ranked), then tables that only
+         * match through a field name - prefix matches before substring matches.
+         */
+        public Search search(String query)
+        {
+            SearchEvent event = SearchEvent.start();
+            List<GenTable> byTable = searchIndex.search(query);
+            FieldNameIndex.Match byPrefix = fieldIndex.findByPrefix(query);
+            FieldNameIndex.Match bySubstring = fieldIndex.findBySubstring(query);
+
+            Set<GenTable> merged = new LinkedHashSet<>(byTable);
+            merged.addAll(byPrefix.getTables());
+            merged.addAll(bySubstring.getTables());
+            event.finish("catalog", query, merged.size());
+            return new Search(new ArrayList<>(merged), bySubstring);
+        }
+
+        public int getTableCount()
+        {
+            return tables.size();
+        }
+
+        public int getFieldCount()
+        {
+            return fields.size();
+        }
+
+        /**
+         * Counts and modification times of the rows this snapshot was built from.
+         */
+        public CatalogStamp getStamp()
+        {
+            return stamp;
+        }
+    }
+
+    /**
+     * Result of {@link Snapshot#search}: the matching tables, and the field names that
+     * matched, for highlighting.
+     */
+    public static final class Search
+    {
+        private final List<GenTable> tables;
+        private final FieldNameIndex.Match fieldMatch;
+
+        Search(List<GenTable> tables, FieldNameIndex.Match fieldMatch)
+        {
+            this.tables = tables;
+            this.fieldMatch = fieldMatch;
+        }
+
+        public List<GenTable> getTables()
+        {
+            return tables;
+        }
+
+        public FieldNameIndex.Match getFieldMatch()
+        {
+            return fieldMatch;
+        }
+    }
+}
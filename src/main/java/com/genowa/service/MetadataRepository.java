@@ -0,0 +1,85 @@
+package com.genowa.service;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read access to table, field and insurance line definitions, independent of the
+ * database they are stored in.
+ *
+ * {@link JdbcMetadataRepository} reads one database directly; {@link LocalReplica} keeps
+ * an embedded copy of another repository and answers reads from it.
+ */
+public interface MetadataRepository extends AutoCloseable
+{
+    /**
+     * Every table, ordered by table_name.
+     */
+    List<GenTable> loadTables() throws SQLException;
+
+    /**
+     * Fields of one table in seq_no order; {@code query} can abort the read from another
+     * thread, in which case this throws and returns nothing.
+     */
+    List<GenField> loadFields(int tableId, CancellableQuery query) throws SQLException;
+
+    /**
+     * Fields of many tables. Every requested id is present in the result, in request
+     * order, with its fields in seq_no order (empty if it has none).
+     */
+    Map<Integer, List<GenField>> loadFields(Collection<Integer> tableIds) throws SQLException;
+
+    /**
+     * Streams every field, ordered by table_id then seq_no, without buffering the result.
+     * Consecutive fields of one table arrive together.
+     */
+    void forEachField(RowHandler<GenField> handler) throws SQLException;
+
+    /**
+     * Insurance line codes from gen_ctl, in order.
+     */
+    List<String> loadInsuranceLines() throws SQLException;
+
+    /**
+     * Keyset-paged gen_tables rows, for lists that show before the whole catalog is read.
+     */
+    PageSource<GenTable> getTablePages();
+
+    /**
+     * Stamp of the rows this repository will now return. A repository that copies another
+     * brings its copy up to date first.
+     */
+    CatalogStamp stamp() throws SQLException;
+
+    /**
+     * As {@link #stamp()}, but a repository that copies another re-copies it even if the
+     * stamp has not moved - the stamp cannot see every edit, such as a changed description
+     * on a schema without modified_date. For an explicit refresh.
+     */
+    default CatalogStamp resync() throws SQLException
+    {
+        return stamp();
+    }
+
+    /**
+     * Releases anything the repository opened itself; shared pools are left alone.
+     */
+    @Override
+    default void close()
+    {
+    }
+
+    /**
+     * Receives streamed rows; may itself write to a database.
+     */
+    @FunctionalInterface
+    interface RowHandler<T>
+    {
+        void accept(T row) throws SQLException;
+    }
+}
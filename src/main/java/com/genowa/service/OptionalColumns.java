@@ -0,0 +1,111 @@
+package com.genowa.service;
+
+import com.genowa.model.YesNo;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column positions of a {@code SELECT *} result, resolved once from its metadata, and
+ * position-based getters that treat position 0 as a missing column.
+ *
+ * Older schemas (see README) lack some columns the model carries; those read as null.
+ */
+final class OptionalColumns
+{
+    static final int ABSENT = 0;
+
+    private final Map<String, Integer> indexes;
+
+    private OptionalColumns(Map<String, Integer> indexes)
+    {
+        this.indexes = indexes;
+    }
+
+    static OptionalColumns of(ResultSet rs) throws SQLException
+    {
+        return of(rs.getMetaData());
+    }
+
+    static OptionalColumns of(ResultSetMetaData meta) throws SQLException
+    {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 1; i <= meta.getColumnCount(); i++)
+        {
+            indexes.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        return new OptionalColumns(indexes);
+    }
+
+    boolean has(String column)
+    {
+        return indexes.containsKey(column);
+    }
+
+    /**
+     * 1-based position of {@code column}, or {@link #ABSENT}.
+     */
+    int indexOf(String column)
+    {
+        return indexes.getOrDefault(column, ABSENT);
+    }
+
+    /**
+     * Position of a column every supported schema has.
+     *
+     * @throws IllegalArgumentException if the result does not include it
+     */
+    int require(String column)
+    {
+        Integer index = indexes.get(column);
+        if (index == null)
+        {
+            throw new IllegalArgumentException("Result has no " + column + " column");
+        }
+        return index;
+    }
+
+    static String getString(ResultSet rs, int index) throws SQLException
+    {
+        return index != ABSENT ? rs.getString(index) : null;
+    }
+
+    /**
+     * A low-cardinality text column, as the dictionary's shared instance.
+     */
+    static String getCode(ResultSet rs, int index, StringDictionary strings) throws SQLException
+    {
+        return strings.intern(getString(rs, index));
+    }
+
+    /**
+     * A Y/N flag column as the canonical {@code "Y"}/{@code "N"} constant.
+     */
+    static String getFlag(ResultSet rs, int index) throws SQLException
+    {
+        return YesNo.canonical(getString(rs, index));
+    }
+
+    /**
+     * A nullable int column, read with one getInt/wasNull pair.
+     */
+    static Integer getInteger(ResultSet rs, int index) throws SQLException
+    {
+        if (index == ABSENT)
+        {
+            return null;
+        }
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    static Timestamp getTimestamp(ResultSet rs, int index) throws SQLException
+    {
+        return index != ABSENT ? rs.getTimestamp(index) : null;
+    }
+}
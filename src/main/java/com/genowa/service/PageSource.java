@@ -0,0 +1,26 @@
+package com.genowa.service;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Ordered rows that can be read a page at a time.
+ *
+ * Sequential pages are read by keyset - "the rows after this one" - so each page costs
+ * the same regardless of how deep into the list it is. {@link #fetchAt(int, int)} is
+ * only needed when the reader jumps to a page whose predecessor it has not seen.
+ */
+public interface PageSource<T>
+{
+    int count() throws SQLException;
+
+    /**
+     * Up to {@code limit} rows following {@code after} in list order, or from the start if it is null.
+     */
+    List<T> fetchAfter(T after, int limit) throws SQLException;
+
+    /**
+     * Up to {@code limit} rows starting at position {@code offset}.
+     */
+    List<T> fetchAt(int offset, int limit) throws SQLException;
+}
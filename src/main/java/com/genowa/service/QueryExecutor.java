@@ -0,0 +1,73 @@
+package com.genowa.service;
+
+import com.genowa.metrics.ActionTrace;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs data-access work off the caller's thread.
+ *
+ * Every task gets its own virtual thread, so a query blocked on the network costs
+ * no platform thread. Each executor caps how many of its tasks may run at once;
+ * screens create one each so a burst from one screen cannot drain the connection pool.
+ * A task runs under the {@link ActionTrace} of the thread that submitted it.
+ */
+public class QueryExecutor
+{
+    private static final ExecutorService THREADS = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("genowa-query-", 0).factory());
+
+    private final String name;
+    private final Semaphore permits;
+
+    public QueryExecutor(String name, int maxConcurrent)
+    {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> query)
+    {
+        ActionTrace.Handoff action = ActionTrace.handoff();
+        return CompletableFuture.supplyAsync(() -> action.call(() -> call(query)), THREADS);
+    }
+
+    private <T> T call(Callable<T> query)
+    {
+        try
+        {
+            permits.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        try
+        {
+            return query.call();
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new CompletionException(e);
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,13 @@
+package com.genowa.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set, reading columns by position.
+ */
+@FunctionalInterface
+public interface RowMapper<T>
+{
+    T map(ResultSet rs) throws SQLException;
+}
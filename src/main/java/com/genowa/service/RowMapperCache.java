@@ -0,0 +1,67 @@
+package com.genowa.service;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * One compiled {@link RowMapper} per result shape - the ordered list of column labels.
+ *
+ * Compiling resolves every column to its position once, so mapping a row reads by index
+ * with no name lookups. Keying by shape rather than SQL text keeps a mapper correct when
+ * the same query meets a different schema (a replica, or a table altered while running).
+ * A handful of queries produce a handful of shapes, so the cache is not bounded.
+ *
+ * A metered {@link ConnectionPool} hands out result sets behind a row-counting proxy; the
+ * mapper reads columns from the driver's result set underneath, so only {@code next()}
+ * goes through the proxy.
+ */
+final class RowMapperCache<T>
+{
+    private final Function<OptionalColumns, RowMapper<T>> compiler;
+    private final Map<String, RowMapper<T>> mappers = new ConcurrentHashMap<>();
+
+    RowMapperCache(Function<OptionalColumns, RowMapper<T>> compiler)
+    {
+        this.compiler = compiler;
+    }
+
+    /**
+     * The mapper for {@code rs}'s shape, compiling it on first sight.
+     */
+    RowMapper<T> forResult(ResultSet rs) throws SQLException
+    {
+        ResultSetMetaData meta = rs.getMetaData();
+        StringBuilder shape = new StringBuilder();
+        for (int i = 1; i <= meta.getColumnCount(); i++)
+        {
+            shape.append(meta.getColumnLabel(i)).append(',');
+        }
+        String key = shape.toString();
+        RowMapper<T> mapper = mappers.get(key);
+        if (mapper == null)
+        {
+            mapper = compiler.apply(OptionalColumns.of(meta));
+            RowMapper<T> raced = mappers.putIfAbsent(key, mapper);
+            if (raced != null)
+            {
+                mapper = raced;
+            }
+        }
+        ResultSet direct = rs.unwrap(ResultSet.class);
+        if (direct == rs)
+        {
+            return mapper;
+        }
+        RowMapper<T> compiled = mapper;
+        return row -> compiled.map(row == rs ? direct : row);
+    }
+
+    int size()
+    {
+        return mappers.size();
+    }
+}
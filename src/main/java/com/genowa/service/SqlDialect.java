@@ -0,0 +1,46 @@
+package com.genowa.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * The few places where the databases behind a {@link MetadataRepository} behave differently.
+ *
+ * The fetch size for bulk reads can be overridden per dialect with the system property
+ * {@code genowa.fetchSize.<dialect>}, e.g. {@code -Dgenowa.fetchSize.h2=5000}. For MySQL a
+ * positive size only takes effect with {@code useCursorFetch=true} in the URL.
+ */
+public enum SqlDialect
+{
+    // Connector/J streams rows one at a time only for this sentinel fetch size
+    MYSQL(Integer.MIN_VALUE),
+    // H2 rejects negative fetch sizes; an ordinary hint keeps large results off the heap
+    H2(1000);
+
+    private final int streamingFetchSize;
+
+    SqlDialect(int defaultFetchSize)
+    {
+        this.streamingFetchSize = Integer.getInteger("genowa.fetchSize." + name().toLowerCase(Locale.ROOT),
+            defaultFetchSize);
+    }
+
+    public static SqlDialect fromUrl(String url)
+    {
+        return url.startsWith("jdbc:h2:") ? H2 : MYSQL;
+    }
+
+    public int getStreamingFetchSize()
+    {
+        return streamingFetchSize;
+    }
+
+    /**
+     * Asks the driver to stream the statement's results instead of buffering all of them.
+     */
+    public void streamResults(Statement stmt) throws SQLException
+    {
+        stmt.setFetchSize(streamingFetchSize);
+    }
+}
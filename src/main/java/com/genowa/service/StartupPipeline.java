@@ -0,0 +1,96 @@
+package com.genowa.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Warms the application up in the background while the login screen is shown.
+ *
+ * Three stages start together: opening database connections, loading the metadata
+ * catalog (from its snapshot file, or the replica) and reading the insurance lines. None
+ * waits on another - the pool connects on demand, and the catalog's own locks order the
+ * replica reads - so startup takes as long as the slowest stage rather than their sum.
+ * Each stage logs its time. A stage that fails is only logged; the screens that need
+ * its result then load it themselves, as they would without the pipeline.
+ */
+public final class StartupPipeline
+{
+    // One for the login check, one for the catalog's freshness check
+    private static final int WARM_CONNECTIONS = 2;
+
+    private static StartupPipeline instance;
+
+    private final long started = System.nanoTime();
+    private final QueryExecutor executor = new QueryExecutor("Startup", 3);
+    private final CompletableFuture<DatabaseService> database;
+
+    private StartupPipeline()
+    {
+        database = stage("database", () ->
+        {
+            DatabaseService service = DatabaseService.getInstance();
+            service.warmUp(WARM_CONNECTIONS);
+            return service;
+        });
+        // Both kept by the catalog, where the screens will find them already loaded
+        stage("catalog", () -> MetadataCatalog.getInstance().getSnapshot());
+        stage("insurance lines", () -> MetadataCatalog.getInstance().getInsuranceLines());
+    }
+
+    /**
+     * Starts the pipeline, or returns the one already started.
+     */
+    public static synchronized StartupPipeline start()
+    {
+        if (instance == null)
+        {
+            instance = new StartupPipeline();
+            System.out.println("Startup: warming database, catalog and insurance lines");
+        }
+        return instance;
+    }
+
+    private <T> CompletableFuture<T> stage(String name, Callable<T> work)
+    {
+        return executor.submit(() ->
+        {
+            long stageStart = System.nanoTime();
+            try
+            {
+                T result = work.call();
+                System.out.println("Startup: " + name + " ready in " + millisSince(stageStart) + " ms");
+                return result;
+            }
+            catch (Exception e)
+            {
+                System.err.println("Startup: " + name + " failed after " + millisSince(stageStart) + " ms: "
+                    + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The database service once its connections are open; completes with it even if
+     * connecting failed, since queries then fall back to connecting on demand.
+     */
+    public DatabaseService awaitDatabase()
+    {
+        DatabaseService service = database.join();
+        return service != null ? service : DatabaseService.getInstance();
+    }
+
+    /**
+     * Logs that startup reached {@code phase}, with the time since the pipeline started.
+     */
+    public void logPhase(String phase, long phaseNanos)
+    {
+        System.out.println("Startup: " + phase + " in " + phaseNanos / 1_000_000 + " ms ("
+            + millisSince(started) + " ms since launch)");
+    }
+
+    private static long millisSince(long nanos)
+    {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+}
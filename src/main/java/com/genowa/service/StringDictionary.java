@@ -0,0 +1,34 @@
+package com.genowa.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of low-cardinality metadata strings - type codes, level codes,
+ * user names - so every row mapped through one dictionary shares a single copy of each
+ * value and equal values are the same object. Thread-safe.
+ *
+ * Only feed it columns with a small set of distinct values; names and descriptions would
+ * just grow it without sharing anything.
+ */
+public class StringDictionary
+{
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * The dictionary's instance equal to {@code value}, adding it if new. Null stays null.
+     */
+    public String intern(String value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+        String existing = values.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    public int size()
+    {
+        return values.size();
+    }
+}
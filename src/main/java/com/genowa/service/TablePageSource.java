@@ -0,0 +1,118 @@
+package com.genowa.service;
+
+import com.genowa.model.GenTable;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pages of gen_tables in (table_name, table_id) order, read by keyset.
+ *
+ * table_id breaks ties between equal names so the order is total. With an index on
+ * (table_name, table_id) every page is an index range scan of {@code limit} rows.
+ */
+public class TablePageSource implements PageSource<GenTable>
+{
+    private static final String COUNT_SQL = "/* tables.count */ SELECT COUNT(*) FROM gen_tables";
+
+    private static final String FIRST_PAGE_SQL =
+        "/* tables.firstPage */ SELECT table_id, table_name, table_desc, table_type, active_yn FROM gen_tables " +
+        "ORDER BY table_name, table_id LIMIT ?";
+
+    private static final String NEXT_PAGE_SQL =
+        "/* tables.nextPage */ SELECT table_id, table_name, table_desc, table_type, active_yn FROM gen_tables " +
+        "WHERE table_name > ? OR (table_name = ? AND table_id > ?) " +
+        "ORDER BY table_name, table_id LIMIT ?";
+
+    // Key-only scan used to find the row just before a page the reader jumped to
+    private static final String SEEK_SQL =
+        "/* tables.seek */ SELECT table_id, table_name FROM gen_tables ORDER BY table_name, table_id LIMIT 1 OFFSET ?";
+
+    private final ConnectionPool pool;
+    private final RowMapperCache<GenTable> mappers;
+
+    public TablePageSource(ConnectionPool pool)
+    {
+        this(pool, new StringDictionary());
+    }
+
+    public TablePageSource(ConnectionPool pool, StringDictionary strings)
+    {
+        this.pool = pool;
+        this.mappers = TableRowMapper.cache(strings);
+    }
+
+    @Override
+    public int count() throws SQLException
+    {
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(COUNT_SQL);
+             ResultSet rs = stmt.executeQuery())
+        {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public List<GenTable> fetchAfter(GenTable after, int limit) throws SQLException
+    {
+        try (Connection conn = pool.borrow())
+        {
+            if (after == null)
+            {
+                try (PreparedStatement stmt = conn.prepareStatement(FIRST_PAGE_SQL))
+                {
+                    stmt.setInt(1, limit);
+                    return readPage(stmt, limit);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(NEXT_PAGE_SQL))
+            {
+                stmt.setString(1, after.getTableName());
+                stmt.setString(2, after.getTableName());
+                stmt.setInt(3, after.getTableId());
+                stmt.setInt(4, limit);
+                return readPage(stmt, limit);
+            }
+        }
+    }
+
+    @Override
+    public List<GenTable> fetchAt(int offset, int limit) throws SQLException
+    {
+        if (offset <= 0)
+        {
+            return fetchAfter(null, limit);
+        }
+
+        GenTable anchor = null;
+        try (Connection conn = pool.borrow();
+             PreparedStatement stmt = conn.prepareStatement(SEEK_SQL))
+        {
+            stmt.setInt(1, offset - 1);
+            try (ResultSet rs = stmt.executeQuery())
+            {
+                if (rs.next())
+                {
+                    anchor = mappers.forResult(rs).map(rs);
+                }
+            }
+        }
+        return anchor == null ? new ArrayList<>() : fetchAfter(anchor, limit);
+    }
+
+    private List<GenTable> readPage(PreparedStatement stmt, int limit) throws SQLException
+    {
+        List<GenTable> page = new ArrayList<>(limit);
+        try (ResultSet rs = stmt.executeQuery())
+        {
+            RowMapper<GenTable> mapper = mappers.forResult(rs);
+            while (rs.next())
+            {
+                page.add(mapper.map(rs));
+            }
+        }
+        return page;
+    }
+}
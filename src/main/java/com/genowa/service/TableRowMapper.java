@@ -0,0 +1,76 @@
+package com.genowa.service;
+
+import com.genowa.model.GenTable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * gen_tables row mapper compiled for one result shape; columns the shape lacks read as null.
+ */
+final class TableRowMapper implements RowMapper<GenTable>
+{
+    private final StringDictionary strings;
+    private final int tableId;
+    private final int tableName;
+    private final int tableDesc;
+    private final int parentTableId;
+    private final int levelTypeCode;
+    private final int keyLength;
+    private final int dataLength;
+    private final int tableType;
+    private final int rateTableType;
+    private final int hasDetailYn;
+    private final int activeYn;
+    private final int createdBy;
+    private final int createdDate;
+    private final int modifiedBy;
+    private final int modifiedDate;
+
+    TableRowMapper(OptionalColumns columns, StringDictionary strings)
+    {
+        this.strings = strings;
+        this.tableId = columns.require("table_id");
+        this.tableName = columns.require("table_name");
+        this.tableDesc = columns.indexOf("table_desc");
+        this.parentTableId = columns.indexOf("parent_table_id");
+        this.levelTypeCode = columns.indexOf("level_type_code");
+        this.keyLength = columns.indexOf("key_length");
+        this.dataLength = columns.indexOf("data_length");
+        this.tableType = columns.indexOf("table_type");
+        this.rateTableType = columns.indexOf("rate_table_type");
+        this.hasDetailYn = columns.indexOf("has_detail_yn");
+        this.activeYn = columns.indexOf("active_yn");
+        this.createdBy = columns.indexOf("created_by");
+        this.createdDate = columns.indexOf("created_date");
+        this.modifiedBy = columns.indexOf("modified_by");
+        this.modifiedDate = columns.indexOf("modified_date");
+    }
+
+    static RowMapperCache<GenTable> cache(StringDictionary strings)
+    {
+        return new RowMapperCache<>(columns -> new TableRowMapper(columns, strings));
+    }
+
+    @Override
+    public GenTable map(ResultSet rs) throws SQLException
+    {
+        GenTable table = new GenTable();
+        table.setTableId(rs.getInt(tableId));
+        table.setTableName(rs.getString(tableName));
+        table.setTableDesc(OptionalColumns.getString(rs, tableDesc));
+        table.setParentTableId(OptionalColumns.getInteger(rs, parentTableId));
+        table.setLevelTypeCode(OptionalColumns.getCode(rs, levelTypeCode, strings));
+        table.setKeyLength(OptionalColumns.getInteger(rs, keyLength));
+        table.setDataLength(OptionalColumns.getInteger(rs, dataLength));
+        table.setTableType(OptionalColumns.getCode(rs, tableType, strings));
+        table.setRateTableType(OptionalColumns.getCode(rs, rateTableType, strings));
+        table.setHasDetailYn(OptionalColumns.getFlag(rs, hasDetailYn));
+        table.setActiveYn(OptionalColumns.getFlag(rs, activeYn));
+        table.setCreatedBy(OptionalColumns.getCode(rs, createdBy, strings));
+        table.setCreatedDate(OptionalColumns.getTimestamp(rs, createdDate));
+        table.setModifiedBy(OptionalColumns.getCode(rs, modifiedBy, strings));
+        table.setModifiedDate(OptionalColumns.getTimestamp(rs, modifiedDate));
+        return table;
+    }
+}
@@ -0,0 +1,110 @@
+package com.genowa.service;
+
+import com.genowa.model.GenTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ranked substring search over table names and descriptions.
+ *
+ * Candidates come from a {@link TrigramIndex}; each candidate is verified and ranked:
+ * exact name, then name prefix, then name substring (earlier match first), then
+ * description-only matches. Ties keep catalog (name) order.
+ */
+public class TableSearchIndex
+{
+    private static final int EXACT = 0;
+    private static final int PREFIX = 1;
+    private static final int NAME = 2;
+    private static final int DESCRIPTION = 3;
+
+    private final List<GenTable> tables;
+    private final String[] names;
+    private final String[] descriptions;
+    private final TrigramIndex trigrams;
+
+    public TableSearchIndex(List<GenTable> tables)
+    {
+        this.tables = tables;
+        this.names = new String[tables.size()];
+        this.descriptions = new String[tables.size()];
+
+        TrigramIndex.Builder builder = TrigramIndex.builder();
+        for (int i = 0; i < tables.size(); i++)
+        {
+            GenTable table = tables.get(i);
+            names[i] = TrigramIndex.normalize(table.getTableName());
+            descriptions[i] = TrigramIndex.normalize(table.getTableDesc());
+            builder.add(i, names[i]).add(i, descriptions[i]);
+        }
+        this.trigrams = builder.build();
+    }
+
+    /**
+     * Returns matching tables, best match first. A blank query returns every table.
+     */
+    public List<GenTable> search(String query)
+    {
+        String normalized = TrigramIndex.normalize(query);
+        if (normalized.isEmpty())
+        {
+            return tables;
+        }
+
+        int[] candidates = trigrams.candidates(normalized);
+        int count = candidates != null ? candidates.length : tables.size();
+
+        // Pack rank, match position and document id into one long so a primitive sort ranks them
+        long[] ranked = new long[count];
+        int n = 0;
+        for (int c = 0; c < count; c++)
+        {
+            int doc = candidates != null ? candidates[c] : c;
+            long rank = rank(doc, normalized);
+            if (rank >= 0)
+            {
+                ranked[n++] = rank;
+            }
+        }
+        Arrays.sort(ranked, 0, n);
+
+        List<GenTable> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+        {
+            results.add(tables.get((int) (ranked[i] & 0xFFFFFFFFL)));
+        }
+        return results;
+    }
+
+    public int size()
+    {
+        return tables.size();
+    }
+
+    private long rank(int doc, String query)
+    {
+        String name = names[doc];
+        int at = name.indexOf(query);
+        int kind;
+        if (at == 0)
+        {
+            kind = name.length() == query.length() ? EXACT : PREFIX;
+        }
+        else if (at > 0)
+        {
+            kind = NAME;
+        }
+        else if (descriptions[doc].contains(query))
+        {
+            kind = DESCRIPTION;
+            at = 0;
+        }
+        else
+        {
+            return -1;
+        }
+        return ((long) kind << 56) | ((long) Math.min(at, 0xFFFFFF) << 32) | doc;
+    }
+}
@@ -0,0 +1,201 @@
+package com.genowa.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted index from character trigrams to document ids.
+ *
+ * Documents are identified by dense ints assigned by the caller. A substring query of
+ * three or more characters can only match documents that contain every trigram of the
+ * query, so {@link #candidates(String)} intersects those posting lists; callers verify
+ * the candidates with a plain {@code contains}. Text is upper-cased before indexing.
+ */
+public class TrigramIndex
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final Map<Long, int[]> postings;
+    private final int documentCount;
+
+    private TrigramIndex(Map<Long, int[]> postings, int documentCount)
+    {
+        this.postings = postings;
+        this.documentCount = documentCount;
+    }
+
+    public static String normalize(String text)
+    {
+        return text == null ? "" : text.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the sorted ids of documents that may contain {@code query}, or null if the
+     * query is too short to narrow the search (fewer than three characters).
+     */
+    public int[] candidates(String query)
+    {
+        String normalized = normalize(query);
+        if (normalized.length() < 3)
+        {
+            return null;
+        }
+
+        long[] grams = distinctTrigrams(normalized);
+        int[][] lists = new int[grams.length][];
+        for (int i = 0; i < grams.length; i++)
+        {
+            int[] list = postings.get(grams[i]);
+            if (list == null)
+            {
+                return EMPTY;
+            }
+            lists[i] = list;
+        }
+
+        // Intersect shortest lists first so the working set shrinks fastest
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++)
+        {
+            result = intersect(result, lists[i]);
+        }
+        return result;
+    }
+
+    public int getDocumentCount()
+    {
+        return documentCount;
+    }
+
+    public int getTrigramCount()
+    {
+        return postings.size();
+    }
+
+    private static int[] intersect(int[] a, int[] b)
+    {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length)
+        {
+            if (a[i] < b[j])
+            {
+                i++;
+            }
+            else if (a[i] > b[j])
+            {
+                j++;
+            }
+            else
+            {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static long[] distinctTrigrams(String text)
+    {
+        long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++)
+        {
+            grams[i] = trigram(text, i);
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++)
+        {
+            if (n == 0 || grams[n - 1] != grams[i])
+            {
+                grams[n++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    private static long trigram(String text, int at)
+    {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Collects documents; ids must be added in ascending order. A document may be
+     * added several times, once per text it should be found by.
+     */
+    public static class Builder
+    {
+        private final Map<Long, IntList> lists = new HashMap<>();
+        private int documentCount;
+        private int lastId = -1;
+
+        public Builder add(int documentId, String text)
+        {
+            if (documentId < lastId)
+            {
+                throw new IllegalArgumentException("Document ids must be added in ascending order");
+            }
+            if (documentId != lastId)
+            {
+                documentCount++;
+                lastId = documentId;
+            }
+
+            String normalized = normalize(text);
+            if (normalized.length() >= 3)
+            {
+                for (long gram : distinctTrigrams(normalized))
+                {
+                    lists.computeIfAbsent(gram, g -> new IntList()).addOnce(documentId);
+                }
+            }
+            return this;
+        }
+
+        public TrigramIndex build()
+        {
+            Map<Long, int[]> postings = new HashMap<>(lists.size() * 2);
+            for (Map.Entry<Long, IntList> entry : lists.entrySet())
+            {
+                postings.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return new TrigramIndex(postings, documentCount);
+        }
+    }
+
+    private static final class IntList
+    {
+        private int[] values = new int[4];
+        private int size;
+
+        // The same id can be added for several texts of one document; ids arrive ascending
+        void addOnce(int value)
+        {
+            if (size > 0 && values[size - 1] == value)
+            {
+                return;
+            }
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
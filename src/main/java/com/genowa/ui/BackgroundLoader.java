@@ -0,0 +1,82 @@
+package com.genowa.ui;
+
+import com.genowa.metrics.ActionTrace;
+import com.genowa.service.QueryExecutor;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Per-screen bridge between a {@link QueryExecutor} and the JavaFX thread.
+ *
+ * Queries run in the background; results and errors are delivered with
+ * {@code Platform.runLater}. {@link #busyProperty()} is true while any query
+ * started through this loader is still running, for binding a loading indicator.
+ * The query and its callbacks run under the caller's {@link ActionTrace}, so work a
+ * callback starts in turn counts towards the same action.
+ */
+public class BackgroundLoader
+{
+    private final QueryExecutor executor;
+    private final ReadOnlyBooleanWrapper busy = new ReadOnlyBooleanWrapper(false);
+    private int inFlight;
+
+    public BackgroundLoader(String name, int maxConcurrent)
+    {
+        this.executor = new QueryExecutor(name, maxConcurrent);
+    }
+
+    /**
+     * Must be called on the FX thread. Both callbacks also run on the FX thread.
+     */
+    public <T> CompletableFuture<T> load(Callable<T> query, Consumer<T> onResult, Consumer<Throwable> onError)
+    {
+        started();
+        ActionTrace.Handoff action = ActionTrace.handoff();
+        CompletableFuture<T> future = executor.submit(query);
+        future.whenComplete((result, error) -> Platform.runLater(() -> action.run(() ->
+        {
+            finished();
+            if (error == null)
+            {
+                onResult.accept(result);
+            }
+            else if (onError != null)
+            {
+                onError.accept(unwrap(error));
+            }
+        })));
+        return future;
+    }
+
+    public ReadOnlyBooleanProperty busyProperty()
+    {
+        return busy.getReadOnlyProperty();
+    }
+
+    private void started()
+    {
+        inFlight++;
+        busy.set(true);
+    }
+
+    private void finished()
+    {
+        inFlight--;
+        busy.set(inFlight > 0);
+    }
+
+    private static Throwable unwrap(Throwable error)
+    {
+        while (error instanceof CompletionException && error.getCause() != null)
+        {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -1,6 +1,8 @@
 package com.genowa.ui;
 
 import com.genowa.service.DatabaseService;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.service.StartupPipeline;
 import com.genowa.ui.screens.LoginScreen;
 import javafx.application.Application;
 import javafx.scene.Scene;
@@ -17,12 +19,21 @@ public class GenowaApp extends Application
     {
         primaryStage = stage;
         primaryStage.setTitle("Genowa - Code Generation Tool");
-        
+
+        // Connect and load the catalog while the user types credentials
+        StartupPipeline.start();
         showLoginScreen();
         
         primaryStage.show();
     }
 
+    @Override
+    public void stop()
+    {
+        MetadataCatalog.shutdown();
+        DatabaseService.shutdown();
+    }
+
     public static void showLoginScreen()
     {
         LoginScreen loginScreen = new LoginScreen();
@@ -35,12 +46,14 @@ public class GenowaApp extends Application
 
     public static void showMainScreen()
     {
+        long start = System.nanoTime();
         com.genowa.ui.screens.MainScreen mainScreen = new com.genowa.ui.screens.MainScreen();
         Scene scene = new Scene(mainScreen.getView(), 1024, 768);
         primaryStage.setScene(scene);
         primaryStage.setWidth(1024);
         primaryStage.setHeight(768);
         primaryStage.centerOnScreen();
+        StartupPipeline.start().logPhase("main window built", System.nanoTime() - start);
     }
 
     public static Stage getPrimaryStage()
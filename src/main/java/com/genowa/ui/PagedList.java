@@ -0,0 +1,169 @@
+package com.genowa.ui;
+
+import com.genowa.service.PageSource;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Observable list that pages rows in from a {@link PageSource} as they are displayed.
+ *
+ * The list reports the full row count but keeps at most {@code maxPages} pages in memory,
+ * evicting the least recently displayed. Rows not loaded yet read as {@code placeholder}
+ * until their page arrives. Each page's last row is remembered so the next page is read
+ * by keyset; reading a row near the end (or start) of a page prefetches the neighbouring
+ * page in the direction the user is scrolling. Must only be used on the FX thread.
+ */
+public class PagedList<T> extends ObservableListBase<T>
+{
+    private final PageSource<T> source;
+    private final BackgroundLoader loader;
+    private final int pageSize;
+    private final int maxPages;
+    private final T placeholder;
+
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, T> lastRows = new HashMap<>();
+    private final Set<Integer> pending = new HashSet<>();
+    private int size;
+    private int lastIndex;
+    private long generation;
+
+    public PagedList(PageSource<T> source, BackgroundLoader loader, int pageSize, int maxPages, T placeholder)
+    {
+        this.source = source;
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        this.placeholder = placeholder;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Drops every cached page and re-reads the row count.
+     */
+    public void reload()
+    {
+        long request = ++generation;
+        pages.clear();
+        lastRows.clear();
+        pending.clear();
+        loader.load(source::count,
+            count ->
+            {
+                if (request != generation)
+                {
+                    return;
+                }
+                if (size == 0 && count == 0)
+                {
+                    return;
+                }
+                List<T> removed = new ArrayList<>(Collections.nCopies(size, placeholder));
+                size = count;
+                beginChange();
+                nextReplace(0, size, removed);
+                endChange();
+            },
+            Throwable::printStackTrace);
+    }
+
+    @Override
+    public T get(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int page = index / pageSize;
+        int offset = index % pageSize;
+
+        // Prefetch ahead of the scroll direction once the reader is in the last quarter of a page
+        boolean forward = index >= lastIndex;
+        lastIndex = index;
+        if (forward && offset >= pageSize * 3 / 4)
+        {
+            request(page + 1);
+        }
+        else if (!forward && offset < pageSize / 4)
+        {
+            request(page - 1);
+        }
+
+        List<T> rows = pages.get(page);
+        if (rows == null)
+        {
+            request(page);
+            return placeholder;
+        }
+        return offset < rows.size() ? rows.get(offset) : placeholder;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    public int getLoadedPageCount()
+    {
+        return pages.size();
+    }
+
+    private void request(int page)
+    {
+        if (page < 0 || page * pageSize >= size || pages.containsKey(page) || !pending.add(page))
+        {
+            return;
+        }
+
+        long request = generation;
+        T after = page == 0 ? null : lastRows.get(page - 1);
+        boolean sequential = page == 0 || after != null;
+        loader.load(() -> sequential ? source.fetchAfter(after, pageSize) : source.fetchAt(page * pageSize, pageSize),
+            rows ->
+            {
+                if (request != generation)
+                {
+                    return;
+                }
+                pending.remove(page);
+                store(page, rows);
+            },
+            e ->
+            {
+                pending.remove(page);
+                e.printStackTrace();
+            });
+    }
+
+    private void store(int page, List<T> rows)
+    {
+        pages.put(page, rows);
+        if (!rows.isEmpty())
+        {
+            lastRows.put(page, rows.get(rows.size() - 1));
+        }
+        while (pages.size() > maxPages)
+        {
+            Integer eldest = pages.keySet().iterator().next();
+            pages.remove(eldest);
+        }
+
+        int from = page * pageSize;
+        int to = Math.min(from + rows.size(), size);
+        if (from < to)
+        {
+            beginChange();
+            nextReplace(from, to, new ArrayList<>(Collections.nCopies(to - from, placeholder)));
+            endChange();
+        }
+    }
+}
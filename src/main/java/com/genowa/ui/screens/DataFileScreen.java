@@ -0,0 +1,350 @@
+package com.genowa.ui.screens;
+
+import com.genowa.codec.DataFileScanner;
+import com.genowa.codec.KeyIndex;
+import com.genowa.codec.RecordCodec;
+import com.genowa.codec.RecordLayout;
+import com.genowa.codec.RecordPredicate;
+import com.genowa.model.GenTable;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.ui.BackgroundLoader;
+import com.genowa.ui.GenowaApp;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Data Files Screen - Inspect legacy fixed-width data files using a table's record layout.
+ */
+public class DataFileScreen
+{
+    private static final int MAX_ROWS = 500;
+    private static final String ANY_FIELD = "(no filter)";
+    private static final String KEY_PREFIX = "key starts with";
+
+    private final MetadataCatalog catalog;
+    private final BackgroundLoader loader = new BackgroundLoader("DataFiles", 1);
+    private final Consumer<MetadataCatalog.Snapshot> catalogListener =
+        snapshot -> Platform.runLater(() -> showTables(snapshot.getTables()));
+
+    private BorderPane view;
+    private ComboBox<GenTable> tableCombo;
+    private ComboBox<String> fieldCombo;
+    private ComboBox<String> operatorCombo;
+    private TextField valueField;
+    private Label fileLabel;
+    private Label statusLabel;
+    private TableView<String[]> recordsView;
+    private ObservableList<String[]> records;
+    // Set while showTables swaps the table list, which refreshes the field choices itself
+    private boolean showingTables;
+    private File dataFile;
+
+    public DataFileScreen(MetadataCatalog catalog)
+    {
+        this.catalog = catalog;
+        createView();
+        loadTables();
+        catalog.addListener(catalogListener);
+    }
+
+    /**
+     * Detaches this screen from the catalog; call when the screen is discarded.
+     */
+    public void dispose()
+    {
+        catalog.removeListener(catalogListener);
+    }
+
+    private void createView()
+    {
+        view = new BorderPane();
+        view.setPadding(new Insets(10));
+
+        Label titleLabel = new Label("Data Files");
+        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
+
+        // Table and file selection
+        tableCombo = new ComboBox<>();
+        tableCombo.setPrefWidth(250);
+        tableCombo.setPromptText("Record layout");
+        tableCombo.setOnAction(e ->
+        {
+            if (!showingTables)
+            {
+                updateFieldChoices(null);
+            }
+        });
+
+        Button fileBtn = new Button("Choose File...");
+        fileBtn.setOnAction(e -> chooseFile());
+        fileLabel = new Label("No file selected");
+
+        HBox sourceBox = new HBox(10, new Label("Table:"), tableCombo, fileBtn, fileLabel);
+        sourceBox.setAlignment(Pos.CENTER_LEFT);
+
+        // Filter
+        fieldCombo = new ComboBox<>();
+        fieldCombo.setPrefWidth(200);
+        operatorCombo = new ComboBox<>(FXCollections.observableArrayList("equals", "starts with", KEY_PREFIX));
+        operatorCombo.getSelectionModel().selectFirst();
+        valueField = new TextField();
+        valueField.setPromptText("Value");
+
+        Button scanBtn = new Button("Scan");
+        scanBtn.setOnAction(e -> scan());
+        scanBtn.disableProperty().bind(loader.busyProperty());
+
+        ProgressIndicator loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setPrefSize(18, 18);
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
+
+        HBox filterBox = new HBox(10, new Label("Filter:"), fieldCombo, operatorCombo, valueField, scanBtn, loadingIndicator);
+        filterBox.setAlignment(Pos.CENTER_LEFT);
+
+        VBox topBox = new VBox(10, titleLabel, sourceBox, filterBox);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+
+        records = FXCollections.observableArrayList();
+        recordsView = new TableView<>(records);
+
+        statusLabel = new Label("Choose a table layout and a data file");
+        statusLabel.setPadding(new Insets(5, 0, 0, 0));
+
+        view.setTop(topBox);
+        view.setCenter(recordsView);
+        view.setBottom(statusLabel);
+    }
+
+    private void loadTables()
+    {
+        loader.load(catalog::getSnapshot,
+            snapshot -> showTables(snapshot.getTables()),
+            Throwable::printStackTrace);
+    }
+
+    private void showTables(List<GenTable> tables)
+    {
+        // The chosen layout is re-selected from the new snapshot, so its fields are current too,
+        // and the field filter is kept if the layout still has that field
+        GenTable selected = tableCombo.getValue();
+        String selectedField = fieldCombo.getValue();
+        showingTables = true;
+        try
+        {
+            tableCombo.getItems().setAll(tables);
+            if (selected != null)
+            {
+                tableCombo.setValue(tables.stream()
+                    .filter(t -> t.getTableName().equals(selected.getTableName()))
+                    .findFirst()
+                    .orElse(null));
+            }
+        }
+        finally
+        {
+            showingTables = false;
+        }
+        if (selected != null)
+        {
+            updateFieldChoices(selectedField);
+        }
+    }
+
+    /**
+     * Lists the chosen layout's fields, selecting {@code keepField} if it is one of them
+     * and no filter otherwise.
+     */
+    private void updateFieldChoices(String keepField)
+    {
+        fieldCombo.getItems().clear();
+        fieldCombo.getItems().add(ANY_FIELD);
+        GenTable table = tableCombo.getValue();
+        MetadataCatalog.Snapshot snapshot = catalog.peek();
+        if (table != null && snapshot != null)
+        {
+            snapshot.getFields(table.getTableId()).forEach(f -> fieldCombo.getItems().add(f.getFieldName()));
+        }
+        if (keepField != null && fieldCombo.getItems().contains(keepField))
+        {
+            fieldCombo.setValue(keepField);
+        }
+        else
+        {
+            fieldCombo.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void chooseFile()
+    {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Open Data File");
+        File file = chooser.showOpenDialog(GenowaApp.getPrimaryStage());
+        if (file != null)
+        {
+            dataFile = file;
+            fileLabel.setText(file.getName() + " (" + file.length() / 1024 + " KB)");
+        }
+    }
+
+    private void scan()
+    {
+        GenTable table = tableCombo.getValue();
+        MetadataCatalog.Snapshot snapshot = catalog.peek();
+        if (table == null || dataFile == null || snapshot == null)
+        {
+            statusLabel.setText("Choose a table layout and a data file first");
+            return;
+        }
+
+        RecordLayout layout;
+        try
+        {
+            layout = RecordLayout.compile(table, snapshot.getFields(table.getTableId()));
+        }
+        catch (IllegalArgumentException e)
+        {
+            statusLabel.setText("Cannot read " + table.getTableName() + ": " + e.getMessage());
+            return;
+        }
+        RecordCodec codec = new RecordCodec(layout);
+        File file = dataFile;
+        String keyPrefix = KEY_PREFIX.equals(operatorCombo.getValue()) ? valueField.getText() : null;
+        RecordPredicate predicate = keyPrefix == null ? buildPredicate(codec) : null;
+
+        statusLabel.setText("Scanning " + file.getName() + "...");
+        loader.load(() -> keyPrefix != null ? runKeyLookup(file, codec, keyPrefix) : runScan(file, codec, predicate),
+            result -> showResult(layout, result),
+            e ->
+            {
+                e.printStackTrace();
+                statusLabel.setText("Scan failed: " + e.getMessage());
+            });
+    }
+
+    private RecordPredicate buildPredicate(RecordCodec codec)
+    {
+        String fieldName = fieldCombo.getValue();
+        String value = valueField.getText();
+        if (fieldName == null || ANY_FIELD.equals(fieldName) || value == null || value.isEmpty())
+        {
+            return RecordPredicate.all();
+        }
+        int field = codec.getLayout().indexOf(fieldName);
+        return "starts with".equals(operatorCombo.getValue())
+            ? RecordPredicate.fieldStartsWith(codec, field, value)
+            : RecordPredicate.fieldEquals(codec, field, value);
+    }
+
+    // Runs in the background: count every match in parallel, then decode the first page in file order
+    private static ScanResult runScan(File file, RecordCodec codec, RecordPredicate predicate) throws Exception
+    {
+        long start = System.nanoTime();
+        try (DataFileScanner scanner = DataFileScanner.open(file.toPath(), codec.getLayout()))
+        {
+            long matches = scanner.count(predicate);
+            List<String[]> rows = new ArrayList<>();
+            int fieldCount = codec.getLayout().getFieldCount();
+            scanner.scan(predicate, (buf, record, number) ->
+            {
+                String[] row = new String[fieldCount + 1];
+                row[0] = String.valueOf(number + 1);
+                for (int f = 0; f < fieldCount; f++)
+                {
+                    row[f + 1] = codec.readString(buf, record, f);
+                }
+                rows.add(row);
+                return rows.size() < MAX_ROWS;
+            });
+            return new ScanResult(scanner.getRecordCount(), matches, rows, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Runs in the background: seek by key through the file's key index, building it on first use
+    private static ScanResult runKeyLookup(File file, RecordCodec codec, String prefix) throws Exception
+    {
+        long start = System.nanoTime();
+        KeyIndex index = KeyIndex.openOrBuild(file.toPath(), codec.getLayout());
+        List<Long> numbers = new ArrayList<>();
+        int matches = index.forEachWithPrefix(prefix, number ->
+        {
+            if (numbers.size() < MAX_ROWS)
+            {
+                numbers.add(number);
+            }
+        });
+
+        List<String[]> rows = new ArrayList<>();
+        int fieldCount = codec.getLayout().getFieldCount();
+        try (DataFileScanner scanner = DataFileScanner.open(file.toPath(), codec.getLayout()))
+        {
+            ByteBuffer buf = ByteBuffer.allocate(codec.getLayout().getRecordLength());
+            for (long number : numbers)
+            {
+                scanner.read(number, buf);
+                String[] row = new String[fieldCount + 1];
+                row[0] = String.valueOf(number + 1);
+                for (int f = 0; f < fieldCount; f++)
+                {
+                    row[f + 1] = codec.readString(buf, 0, f);
+                }
+                rows.add(row);
+            }
+            return new ScanResult(scanner.getRecordCount(), matches, rows, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void showResult(RecordLayout layout, ScanResult result)
+    {
+        recordsView.getColumns().clear();
+        recordsView.getColumns().add(column("#", 0, 70));
+        for (int f = 0; f < layout.getFieldCount(); f++)
+        {
+            recordsView.getColumns().add(column(layout.getName(f), f + 1, Math.max(60, layout.getLength(f) * 9)));
+        }
+        records.setAll(result.rows);
+        statusLabel.setText(result.matches + " of " + result.total + " records match in " + result.elapsedMillis + " ms"
+            + (result.matches > result.rows.size() ? " - showing first " + result.rows.size() : ""));
+    }
+
+    private static TableColumn<String[], String> column(String title, int index, int width)
+    {
+        TableColumn<String[], String> col = new TableColumn<>(title);
+        col.setCellValueFactory(data -> new SimpleStringProperty(data.getValue()[index]));
+        col.setPrefWidth(width);
+        return col;
+    }
+
+    public BorderPane getView()
+    {
+        return view;
+    }
+
+    private static final class ScanResult
+    {
+        private final long total;
+        private final long matches;
+        private final List<String[]> rows;
+        private final long elapsedMillis;
+
+        ScanResult(long total, long matches, List<String[]> rows, long elapsedMillis)
+        {
+            this.total = total;
+            this.matches = matches;
+            this.rows = rows;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+}
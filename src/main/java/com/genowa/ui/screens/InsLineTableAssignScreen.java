@@ -1,7 +1,12 @@
 package com.genowa.ui.screens;
 
+import com.genowa.metrics.ActionTrace;
+import com.genowa.metrics.ListRefreshEvent;
+import com.genowa.metrics.SearchEvent;
 import com.genowa.model.GenTable;
-import com.genowa.service.DatabaseService;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.ui.BackgroundLoader;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -11,9 +16,11 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.util.StringConverter;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 public class InsLineTableAssignScreen
 {
@@ -21,53 +28,41 @@ public class InsLineTableAssignScreen
     private ComboBox<String> insLineCombo;
     private TableView<GenTable> tableView;
     private ObservableList<GenTable> assignedTables;
-    private List<GenTable> allTables;
+    private List<GenTable> allTables = new ArrayList<>();
+    private final MetadataCatalog catalog;
+    private final BackgroundLoader loader = new BackgroundLoader("InsLineTableAssign", 2);
+    // A refresh can change both the tables and the insurance lines
+    private final Consumer<MetadataCatalog.Snapshot> catalogListener = snapshot -> Platform.runLater(() ->
+    {
+        allTables = snapshot.getTables();
+        loadInsuranceLines();
+    });
 
-    public InsLineTableAssignScreen()
+    public InsLineTableAssignScreen(MetadataCatalog catalog)
     {
-        loadAllTables();
+        this.catalog = catalog;
         createView();
+        loadAllTables();
+        catalog.addListener(catalogListener);
+    }
+
+    /**
+     * Detaches this screen from the catalog; call when the screen is discarded.
+     */
+    public void dispose()
+    {
+        catalog.removeListener(catalogListener);
     }
 
     private void loadAllTables()
     {
-        allTables = new ArrayList<>();
-        String sql = "SELECT * FROM gen_tables ORDER BY table_name";
-        
-        try (PreparedStatement stmt = DatabaseService.getInstance().getConnection().prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery())
-        {
-            while (rs.next())
+        loader.load(catalog::getSnapshot,
+            snapshot ->
             {
-                GenTable table = new GenTable();
-                table.setTableId(rs.getInt("table_id"));
-                table.setTableName(rs.getString("table_name"));
-                table.setTableDesc(rs.getString("table_desc"));
-                
-                // Handle nullable integer fields
-                int parentId = rs.getInt("parent_table_id");
-                table.setParentTableId(rs.wasNull() ? null : parentId);
-                
-                table.setLevelTypeCode(rs.getString("level_type_code"));
-                
-                int keyLen = rs.getInt("key_length");
-                table.setKeyLength(rs.wasNull() ? null : keyLen);
-                
-                int dataLen = rs.getInt("data_length");
-                table.setDataLength(rs.wasNull() ? null : dataLen);
-                
-                table.setTableType(rs.getString("table_type"));
-                table.setRateTableType(rs.getString("rate_table_type"));
-                table.setHasDetailYn(rs.getString("has_detail_yn"));
-                table.setActiveYn(rs.getString("active_yn"));
-                
-                allTables.add(table);
-            }
-        }
-        catch (SQLException e)
-        {
-            e.printStackTrace();
-        }
+                allTables = snapshot.getTables();
+                loadAssignedTables();
+            },
+            Throwable::printStackTrace);
     }
 
     private void createView()
@@ -90,14 +85,18 @@ public class InsLineTableAssignScreen
         insLineCombo = new ComboBox<>();
         insLineCombo.setPrefWidth(300);
         loadInsuranceLines();
-        insLineCombo.setOnAction(e -> loadAssignedTables());
+        insLineCombo.setOnAction(e -> ActionTrace.run("Ins Line: select line", this::loadAssignedTables));
+
+        ProgressIndicator loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setPrefSize(18, 18);
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
         
-        selectorBox.getChildren().addAll(insLineLabel, insLineCombo);
+        selectorBox.getChildren().addAll(insLineLabel, insLineCombo, loadingIndicator);
 
         // Buttons
         HBox buttonBox = new HBox(10);
         Button addTableBtn = new Button("Add Table");
-        addTableBtn.setOnAction(e -> showAddTableDialog());
+        addTableBtn.setOnAction(e -> ActionTrace.run("Ins Line: Add Table dialog", this::showAddTableDialog));
         Button removeTableBtn = new Button("Remove Table");
         removeTableBtn.setOnAction(e -> removeSelectedTable());
         Button addMappingBtn = new Button("Add Mapping");
@@ -133,32 +132,51 @@ public class InsLineTableAssignScreen
 
     private void loadInsuranceLines()
     {
+        String selected = insLineCombo.getValue();
         insLineCombo.getItems().clear();
-        String sql = "SELECT DISTINCT ctl_value FROM gen_ctl WHERE ctl_type = 'INS_LINE' ORDER BY ctl_value";
-        
-        try (PreparedStatement stmt = DatabaseService.getInstance().getConnection().prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery())
+        loader.load(this::queryInsuranceLines,
+            lines ->
+            {
+                ListRefreshEvent event = ListRefreshEvent.start();
+                insLineCombo.getItems().setAll(lines);
+                event.finish("InsLineTableAssign", "insuranceLines", lines.size());
+                if (!insLineCombo.getItems().isEmpty())
+                {
+                    // Keep the user's line across a refresh if it still exists
+                    if (lines.contains(selected))
+                    {
+                        insLineCombo.getSelectionModel().select(selected);
+                    }
+                    else
+                    {
+                        insLineCombo.getSelectionModel().selectFirst();
+                    }
+                    loadAssignedTables();
+                }
+            },
+            Throwable::printStackTrace);
+    }
+
+    private List<String> queryInsuranceLines()
+    {
+        try
         {
-            while (rs.next())
+            List<String> lines = catalog.getInsuranceLines();
+            if (!lines.isEmpty())
             {
-                insLineCombo.getItems().add(rs.getString("ctl_value"));
+                return lines;
             }
         }
         catch (SQLException e)
         {
-            // If table doesn't exist, add sample data
-            insLineCombo.getItems().addAll("AUTO", "HOME", "LIFE", "HEALTH");
-        }
-        
-        if (!insLineCombo.getItems().isEmpty())
-        {
-            insLineCombo.getSelectionModel().selectFirst();
-            loadAssignedTables();
+            // gen_ctl doesn't exist - fall through to sample data
         }
+        return new ArrayList<>(List.of("AUTO", "HOME", "LIFE", "HEALTH"));
     }
 
     private void loadAssignedTables()
     {
+        ListRefreshEvent event = ListRefreshEvent.start();
         assignedTables.clear();
         String selectedLine = insLineCombo.getValue();
         if (selectedLine == null) return;
@@ -173,6 +191,7 @@ public class InsLineTableAssignScreen
                 assignedTables.add(table);
             }
         }
+        event.finish("InsLineTableAssign", "assignedTables", assignedTables.size());
     }
 
     private void showAddTableDialog()
@@ -224,7 +243,7 @@ public class InsLineTableAssignScreen
         // Filter as user types
         tableCombo.getEditor().textProperty().addListener((obs, oldVal, newVal) ->
         {
-            final String filterText = newVal == null ? "" : newVal.toLowerCase();
+            final String filterText = newVal == null ? "" : newVal.toLowerCase(Locale.ROOT);
             
             // Don't filter if a selection was just made
             if (tableCombo.getValue() != null && 
@@ -233,16 +252,16 @@ public class InsLineTableAssignScreen
                 return;
             }
             
+            SearchEvent event = SearchEvent.start();
             filteredTables.setPredicate(table ->
             {
                 if (filterText.isEmpty())
                 {
                     return true;
                 }
-                return table.getTableName().toLowerCase().contains(filterText) ||
-                       (table.getTableDesc() != null && 
-                        table.getTableDesc().toLowerCase().contains(filterText));
+                return table.containsText(filterText);
             });
+            event.finish("Add Table dialog", filterText, filteredTables.size());
             
             if (!tableCombo.isShowing() && !filterText.isEmpty())
             {
@@ -1,6 +1,8 @@
 package com.genowa.ui.screens;
 
 import com.genowa.service.DatabaseService;
+import com.genowa.service.StartupPipeline;
+import com.genowa.ui.BackgroundLoader;
 import com.genowa.ui.GenowaApp;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -10,10 +12,15 @@ import javafx.scene.Parent;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 
+import java.util.Objects;
+
 public class LoginScreen
 {
+    private final BackgroundLoader loader = new BackgroundLoader("Login", 1);
+
     private TextField usernameField;
     private PasswordField passwordField;
+    private Button loginButton;
     private Label errorLabel;
 
     public LoginScreen()
@@ -41,9 +48,10 @@ public class LoginScreen
         passwordField.setPromptText("Password");
         passwordField.setMaxWidth(200);
 
-        Button loginButton = new Button("Login");
+        loginButton = new Button("Login");
         loginButton.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
         loginButton.setOnAction(e -> handleLogin());
+        loginButton.disableProperty().bind(loader.busyProperty());
 
         errorLabel = new Label();
         errorLabel.setStyle("-fx-text-fill: red;");
@@ -57,17 +65,28 @@ public class LoginScreen
     {
         String username = usernameField.getText();
         String password = passwordField.getText();
+        long start = System.nanoTime();
 
-        // Check using DatabaseService
-        if (DatabaseService.getInstance().validateLogin(username, password))
-        {
-            String role = DatabaseService.getInstance().getUserRole(username);
-            GenowaApp.setCurrentUser(username, role);
-            GenowaApp.showMainScreen();
-        }
-        else
-        {
-            errorLabel.setText("Invalid username or password");
-        }
+        errorLabel.setText("");
+        // Off the FX thread, on a connection the startup pipeline already opened
+        loader.load(() ->
+            {
+                DatabaseService db = StartupPipeline.start().awaitDatabase();
+                // Null for a failed login, so a user without a role gets an empty one
+                return db.validateLogin(username, password)
+                    ? Objects.requireNonNullElse(db.getUserRole(username), "") : null;
+            },
+            role ->
+            {
+                if (role == null)
+                {
+                    errorLabel.setText("Invalid username or password");
+                    return;
+                }
+                StartupPipeline.start().logPhase("login verified", System.nanoTime() - start);
+                GenowaApp.setCurrentUser(username, role);
+                GenowaApp.showMainScreen();
+            },
+            error -> errorLabel.setText("Login failed: " + error.getMessage()));
     }
 }
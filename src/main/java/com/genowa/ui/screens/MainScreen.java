@@ -1,16 +1,40 @@
 package com.genowa.ui.screens;
 
+import com.genowa.generator.CStructTemplate;
+import com.genowa.generator.CodeGenerator;
+import com.genowa.generator.JavaRecordTemplate;
+import com.genowa.importer.DefinitionImporter;
+import com.genowa.metrics.ActionTrace;
+import com.genowa.metrics.FlightRecording;
+import com.genowa.metrics.QueryMetrics;
+import com.genowa.metrics.ScreenBuildEvent;
 import com.genowa.service.DatabaseService;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.ui.BackgroundLoader;
 import com.genowa.ui.GenowaApp;
 import javafx.geometry.Insets;
+import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.function.Supplier;
 
 public class MainScreen
 {
+    private static final String GENERATED_PACKAGE = "com.genowa.generated";
+
     private BorderPane view;
     private TabPane tabPane;
     private Label statusLabel;
+    private Stage queryMetricsStage;
+    private TablesScreen tablesScreen;
+    private InsLineTableAssignScreen insLineScreen;
+    private DataFileScreen dataFileScreen;
+    private final BackgroundLoader loader = new BackgroundLoader("Main", 1);
 
     public MainScreen()
     {
@@ -32,15 +56,22 @@ public class MainScreen
         // Create tabs
         Tab tablesTab = new Tab("Tables");
         tablesTab.setClosable(false);
-        TablesScreen tablesScreen = new TablesScreen(DatabaseService.getInstance());
+        tablesScreen = openTab(tablesTab, () -> new TablesScreen(MetadataCatalog.getInstance(),
+            MetadataCatalog.getInstance().getRepository().getTablePages()));
         tablesTab.setContent(tablesScreen.getView());
 
         Tab insLineTab = new Tab("Ins Line Table Assign");
         insLineTab.setClosable(false);
-        InsLineTableAssignScreen insLineScreen = new InsLineTableAssignScreen();
+        insLineScreen = openTab(insLineTab,
+            () -> new InsLineTableAssignScreen(MetadataCatalog.getInstance()));
         insLineTab.setContent(insLineScreen.getView());
 
-        tabPane.getTabs().addAll(tablesTab, insLineTab);
+        Tab dataFileTab = new Tab("Data Files");
+        dataFileTab.setClosable(false);
+        dataFileScreen = openTab(dataFileTab, () -> new DataFileScreen(MetadataCatalog.getInstance()));
+        dataFileTab.setContent(dataFileScreen.getView());
+
+        tabPane.getTabs().addAll(tablesTab, insLineTab, dataFileTab);
         view.setCenter(tabPane);
 
         // Status Bar
@@ -48,6 +79,23 @@ public class MainScreen
         view.setBottom(statusBar);
     }
 
+    /**
+     * Builds a tab's screen - a flight recorder event, and a traced action covering the
+     * queries the screen starts while it loads.
+     */
+    private static <T> T openTab(Tab tab, Supplier<T> screen)
+    {
+        ScreenBuildEvent event = ScreenBuildEvent.start();
+        try
+        {
+            return ActionTrace.call("Open " + tab.getText() + " tab", screen);
+        }
+        finally
+        {
+            event.finish(tab.getText());
+        }
+    }
+
     private MenuBar createMenuBar()
     {
         MenuBar menuBar = new MenuBar();
@@ -55,18 +103,28 @@ public class MainScreen
         // File Menu
         Menu fileMenu = new Menu("File");
         MenuItem logoutItem = new MenuItem("Logout");
-        logoutItem.setOnAction(e -> GenowaApp.showLoginScreen());
+        logoutItem.setOnAction(e -> logout());
         MenuItem exitItem = new MenuItem("Exit");
         exitItem.setOnAction(e -> System.exit(0));
         fileMenu.getItems().addAll(logoutItem, new SeparatorMenuItem(), exitItem);
 
+        // Tools Menu
+        Menu toolsMenu = new Menu("Tools");
+        MenuItem generateItem = new MenuItem("Generate Code...");
+        generateItem.setOnAction(e -> ActionTrace.run("Generate code", this::generateCode));
+        MenuItem importItem = new MenuItem("Import Definitions...");
+        importItem.setOnAction(e -> ActionTrace.run("Import definitions", this::importDefinitions));
+        MenuItem recordingItem = new MenuItem(recordingLabel());
+        recordingItem.setOnAction(e -> toggleRecording(recordingItem));
+        toolsMenu.getItems().addAll(generateItem, importItem, new SeparatorMenuItem(), recordingItem);
+
         // Help Menu
         Menu helpMenu = new Menu("Help");
         MenuItem aboutItem = new MenuItem("About");
         aboutItem.setOnAction(e -> showAboutDialog());
         helpMenu.getItems().add(aboutItem);
 
-        menuBar.getMenus().addAll(fileMenu, helpMenu);
+        menuBar.getMenus().addAll(fileMenu, toolsMenu, helpMenu);
         return menuBar;
     }
 
@@ -77,21 +135,196 @@ public class MainScreen
         statusBar.setStyle("-fx-background-color: #e0e0e0;");
         statusBar.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
 
-        statusLabel = new Label("User: " + GenowaApp.getCurrentUser() + " [" + GenowaApp.getCurrentUserRole() + "]");
+        statusLabel = new Label(userStatus());
 
         // Spacer to push logout button to the right
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
+        Button queriesBtn = new Button("Queries");
+        queriesBtn.setOnAction(e -> showQueryMetrics());
+
         // Logout button
         Button logoutBtn = new Button("Logout");
-        logoutBtn.setOnAction(e -> GenowaApp.showLoginScreen());
+        logoutBtn.setOnAction(e -> logout());
 
-        statusBar.getChildren().addAll(statusLabel, spacer, logoutBtn);
+        statusBar.setSpacing(10);
+        statusBar.getChildren().addAll(statusLabel, spacer, queriesBtn, logoutBtn);
 
         return statusBar;
     }
 
+    /**
+     * Discards this window's screens - detaching them from the catalog, which outlives
+     * them - and returns to the login screen.
+     */
+    private void logout()
+    {
+        tablesScreen.dispose();
+        insLineScreen.dispose();
+        dataFileScreen.dispose();
+        if (queryMetricsStage != null)
+        {
+            queryMetricsStage.close();
+        }
+        GenowaApp.showLoginScreen();
+    }
+
+    private void generateCode()
+    {
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("Generate Code Into");
+        File dir = chooser.showDialog(GenowaApp.getPrimaryStage());
+        if (dir == null)
+        {
+            return;
+        }
+
+        statusLabel.setText("Generating code into " + dir + "...");
+        CodeGenerator generator = new CodeGenerator(new CStructTemplate(), new JavaRecordTemplate(GENERATED_PACKAGE));
+        loader.load(() ->
+            {
+                MetadataCatalog.Snapshot snapshot = MetadataCatalog.getInstance().getSnapshot();
+                return generator.generate(snapshot.getTables(), snapshot::getFields, dir.toPath(), false);
+            },
+            result ->
+            {
+                statusLabel.setText(userStatus());
+                Alert alert = new Alert(result.getFailures().isEmpty() ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+                alert.setTitle("Generate Code");
+                alert.setHeaderText(result.toString());
+                alert.setContentText(result.getFailures().isEmpty() ? "Output: " + dir : String.join("\n", result.getFailures()));
+                alert.showAndWait();
+            },
+            e ->
+            {
+                statusLabel.setText(userStatus());
+                e.printStackTrace();
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Generate Code");
+                alert.setHeaderText(null);
+                alert.setContentText("Code generation failed: " + e.getMessage());
+                alert.showAndWait();
+            });
+    }
+
+    private void importDefinitions()
+    {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Legacy Definitions");
+        File file = chooser.showOpenDialog(GenowaApp.getPrimaryStage());
+        if (file == null)
+        {
+            return;
+        }
+
+        statusLabel.setText("Importing " + file.getName() + "...");
+        DefinitionImporter importer = new DefinitionImporter(DatabaseService.getInstance());
+        loader.load(() ->
+            {
+                DefinitionImporter.Result result = importer.importFile(file.toPath());
+                MetadataCatalog.getInstance().refresh();
+                return result;
+            },
+            result ->
+            {
+                statusLabel.setText(userStatus());
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Import Definitions");
+                alert.setHeaderText(file.getName());
+                alert.setContentText(result.toString());
+                alert.showAndWait();
+            },
+            e ->
+            {
+                statusLabel.setText(userStatus());
+                e.printStackTrace();
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Import Definitions");
+                alert.setHeaderText(null);
+                alert.setContentText("Import failed: " + e.getMessage());
+                alert.showAndWait();
+            });
+    }
+
+    private static String recordingLabel()
+    {
+        return FlightRecording.isRunning() ? "Stop Flight Recording..." : "Start Flight Recording";
+    }
+
+    private void toggleRecording(MenuItem recordingItem)
+    {
+        if (!FlightRecording.isRunning())
+        {
+            try
+            {
+                FlightRecording.start();
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+                showError("Flight Recording", "Could not start a flight recording: " + e.getMessage());
+            }
+            recordingItem.setText(recordingLabel());
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Flight Recording");
+        chooser.setInitialFileName("genowa-" + System.currentTimeMillis() + ".jfr");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight recordings", "*.jfr"));
+        File file = chooser.showSaveDialog(GenowaApp.getPrimaryStage());
+        if (file == null)
+        {
+            // Still recording
+            return;
+        }
+        loader.load(() ->
+            {
+                FlightRecording.stop(file.toPath());
+                return file;
+            },
+            saved ->
+            {
+                recordingItem.setText(recordingLabel());
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Flight Recording");
+                alert.setHeaderText(null);
+                alert.setContentText("Recording saved to " + saved + "\n\nOpen it in JDK Mission Control.");
+                alert.showAndWait();
+            },
+            e ->
+            {
+                e.printStackTrace();
+                showError("Flight Recording", "Could not save the recording: " + e.getMessage());
+            });
+    }
+
+    private void showError(String title, String message)
+    {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
+    private void showQueryMetrics()
+    {
+        if (queryMetricsStage == null)
+        {
+            QueryMetricsScreen screen = new QueryMetricsScreen(QueryMetrics.getDefault());
+            queryMetricsStage = new Stage();
+            queryMetricsStage.setTitle("Query Metrics");
+            queryMetricsStage.initOwner(GenowaApp.getPrimaryStage());
+            queryMetricsStage.setScene(new Scene(screen.getView(), 900, 400));
+            queryMetricsStage.setOnShown(e -> screen.start());
+            queryMetricsStage.setOnHidden(e -> screen.stop());
+        }
+        queryMetricsStage.show();
+        queryMetricsStage.toFront();
+    }
+
     private void showAboutDialog()
     {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
@@ -101,6 +334,11 @@ public class MainScreen
         alert.showAndWait();
     }
 
+    private static String userStatus()
+    {
+        return "User: " + GenowaApp.getCurrentUser() + " [" + GenowaApp.getCurrentUserRole() + "]";
+    }
+
     public BorderPane getView()
     {
         return view;
@@ -0,0 +1,151 @@
+package com.genowa.ui.screens;
+
+import com.genowa.metrics.QueryMetrics;
+import com.genowa.metrics.QueryStats;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleLongProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Query Metrics Screen - Live per-query latency, row and byte totals from {@link QueryMetrics},
+ * refreshed every second while shown.
+ */
+public class QueryMetricsScreen
+{
+    private final QueryMetrics metrics;
+    private final Timeline refresher;
+
+    private BorderPane view;
+    private TableView<QueryStats.Summary> queriesView;
+    private ObservableList<QueryStats.Summary> queries;
+    private Label totalsLabel;
+
+    public QueryMetricsScreen(QueryMetrics metrics)
+    {
+        this.metrics = metrics;
+        this.refresher = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+        refresher.setCycleCount(Timeline.INDEFINITE);
+        createView();
+    }
+
+    private void createView()
+    {
+        view = new BorderPane();
+        view.setPadding(new Insets(10));
+
+        Label titleLabel = new Label("Query Metrics");
+        titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
+
+        Button resetBtn = new Button("Reset");
+        resetBtn.setOnAction(e ->
+        {
+            metrics.reset();
+            refresh();
+        });
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox topBox = new HBox(10, titleLabel, spacer, resetBtn);
+        topBox.setAlignment(Pos.CENTER_LEFT);
+        topBox.setPadding(new Insets(0, 0, 10, 0));
+
+        queries = FXCollections.observableArrayList();
+        queriesView = new TableView<>(queries);
+        queriesView.setPlaceholder(new Label("No queries recorded yet"));
+
+        TableColumn<QueryStats.Summary, String> nameCol = new TableColumn<>("Query");
+        nameCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getName()));
+        nameCol.setPrefWidth(220);
+
+        queriesView.getColumns().add(nameCol);
+        queriesView.getColumns().add(countColumn("Calls", QueryStats.Summary::getExecutions));
+        queriesView.getColumns().add(countColumn("Errors", QueryStats.Summary::getErrors));
+        queriesView.getColumns().add(millisColumn("p50 ms", QueryStats.Summary::getP50Nanos));
+        queriesView.getColumns().add(millisColumn("p99 ms", QueryStats.Summary::getP99Nanos));
+        queriesView.getColumns().add(millisColumn("Max ms", QueryStats.Summary::getMaxNanos));
+        queriesView.getColumns().add(millisColumn("Total ms", QueryStats.Summary::getTotalNanos));
+        queriesView.getColumns().add(countColumn("Rows", QueryStats.Summary::getRows));
+        queriesView.getColumns().add(countColumn("Bytes", QueryStats.Summary::getBytes));
+
+        totalsLabel = new Label();
+        totalsLabel.setPadding(new Insets(5, 0, 0, 0));
+
+        view.setTop(topBox);
+        view.setCenter(queriesView);
+        view.setBottom(totalsLabel);
+    }
+
+    private static TableColumn<QueryStats.Summary, Number> countColumn(String title,
+                                                                       ToLongFunction<QueryStats.Summary> value)
+    {
+        TableColumn<QueryStats.Summary, Number> column = new TableColumn<>(title);
+        column.setCellValueFactory(data -> new SimpleLongProperty(value.applyAsLong(data.getValue())));
+        column.setPrefWidth(80);
+        return column;
+    }
+
+    private static TableColumn<QueryStats.Summary, Number> millisColumn(String title,
+                                                                        ToLongFunction<QueryStats.Summary> nanos)
+    {
+        TableColumn<QueryStats.Summary, Number> column = new TableColumn<>(title);
+        // Hundredths of a millisecond, as a number so the column sorts numerically
+        column.setCellValueFactory(data ->
+            new SimpleDoubleProperty(Math.round(nanos.applyAsLong(data.getValue()) / 10_000.0) / 100.0));
+        column.setPrefWidth(80);
+        return column;
+    }
+
+    private void refresh()
+    {
+        List<QueryStats.Summary> current = metrics.getQueries();
+        queries.setAll(current);
+        // Keep whatever column order the user sorted by
+        queriesView.sort();
+
+        long calls = 0;
+        long errors = 0;
+        long nanos = 0;
+        for (QueryStats.Summary summary : current)
+        {
+            calls += summary.getExecutions();
+            errors += summary.getErrors();
+            nanos += summary.getTotalNanos();
+        }
+        totalsLabel.setText(current.size() + " queries, " + calls + " calls, " + errors + " errors, "
+            + nanos / 1_000_000 + " ms total");
+    }
+
+    /**
+     * Starts refreshing; call when the screen is shown.
+     */
+    public void start()
+    {
+        refresh();
+        refresher.play();
+    }
+
+    /**
+     * Stops refreshing; call when the screen is hidden.
+     */
+    public void stop()
+    {
+        refresher.stop();
+    }
+
+    public BorderPane getView()
+    {
+        return view;
+    }
+}
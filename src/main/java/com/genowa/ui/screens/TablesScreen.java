@@ -1,8 +1,17 @@
 package com.genowa.ui.screens;
 
-import com.genowa.model.GenField;
+import com.genowa.metrics.ActionTrace;
+import com.genowa.metrics.ListRefreshEvent;
+import com.genowa.model.FieldRow;
 import com.genowa.model.GenTable;
-import com.genowa.service.DatabaseService;
+import com.genowa.service.CancellableQuery;
+import com.genowa.service.FieldNameIndex;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.service.PageSource;
+import com.genowa.ui.BackgroundLoader;
+import com.genowa.ui.PagedList;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,34 +19,72 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.util.Duration;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Tables Management Screen - View and edit table definitions and their fields.
  */
 public class TablesScreen
 {
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(150);
+    private static final Duration SELECTION_DEBOUNCE = Duration.millis(120);
+    private static final String FIELD_MATCH_STYLE = "-fx-background-color: #fff3c4;";
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 10;
+
     private BorderPane view;
-    private DatabaseService dbService;
+    private MetadataCatalog catalog;
     private TableView<GenTable> tablesTableView;
-    private TableView<GenField> fieldsTableView;
+    private TableView<FieldRow> fieldsTableView;
     private ObservableList<GenTable> tablesList;
-    private ObservableList<GenField> fieldsList;
+    private PagedList<GenTable> pagedTables;
+    private ObservableList<FieldRow> fieldsList;
     private TextField searchField;
     private GenTable selectedTable;
+    private FieldNameIndex.Match fieldMatch = FieldNameIndex.Match.NONE;
+    private Label statsLabel;
+    private PauseTransition selectionDelay;
+    private CancellableQuery fieldQuery;
+    private final BackgroundLoader loader = new BackgroundLoader("Tables", 3);
+    // Redraw whenever the catalog is replaced - by Refresh, or once a saved snapshot turns out stale
+    private final Consumer<MetadataCatalog.Snapshot> catalogListener = snapshot -> Platform.runLater(() ->
+    {
+        pagedTables.reload();
+        filterTables(searchField.getText());
+        loadFieldsForTable(selectedTable);
+    });
 
-    public TablesScreen(DatabaseService dbService)
+    public TablesScreen(MetadataCatalog catalog, PageSource<GenTable> tablePages)
     {
-        this.dbService = dbService;
+        this.catalog = catalog;
         this.tablesList = FXCollections.observableArrayList();
         this.fieldsList = FXCollections.observableArrayList();
+        this.pagedTables = new PagedList<>(tablePages, loader, PAGE_SIZE, MAX_PAGES, loadingRow());
         createView();
+        // The unfiltered list pages in straight away; the catalog behind search and fields loads alongside
+        pagedTables.reload();
         loadTables();
+        catalog.addListener(catalogListener);
+    }
+
+    /**
+     * Detaches this screen from the catalog; call when the screen is discarded.
+     */
+    public void dispose()
+    {
+        catalog.removeListener(catalogListener);
+    }
+
+    private static GenTable loadingRow()
+    {
+        GenTable row = new GenTable();
+        row.setTableName("Loading...");
+        return row;
     }
 
     private void createView()
@@ -51,11 +98,18 @@ public class TablesScreen
 
         // Search bar
         searchField = new TextField();
-        searchField.setPromptText("Search tables...");
+        searchField.setPromptText("Search tables or field names...");
         searchField.setPrefWidth(300);
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> filterTables(newVal));
+        // Debounce so a burst of keystrokes repaints the list once
+        PauseTransition searchDelay = new PauseTransition(SEARCH_DEBOUNCE);
+        searchDelay.setOnFinished(e -> ActionTrace.run("Tables: search", () -> filterTables(searchField.getText())));
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> searchDelay.playFromStart());
+
+        ProgressIndicator loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setPrefSize(18, 18);
+        loadingIndicator.visibleProperty().bind(loader.busyProperty());
 
-        HBox topBar = new HBox(20, titleLabel, searchField);
+        HBox topBar = new HBox(20, titleLabel, searchField, loadingIndicator);
         topBar.setAlignment(Pos.CENTER_LEFT);
         topBar.setPadding(new Insets(0, 0, 10, 0));
 
@@ -85,7 +139,7 @@ public class TablesScreen
 
         // Tables TableView
         tablesTableView = new TableView<>();
-        tablesTableView.setItems(tablesList);
+        tablesTableView.setItems(pagedTables);
 
         TableColumn<GenTable, String> nameCol = new TableColumn<>("Table Name");
         nameCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getTableName()));
@@ -97,26 +151,28 @@ public class TablesScreen
 
         tablesTableView.getColumns().addAll(nameCol, descCol);
 
-        // Selection listener
+        // Selection listener - field loads that need a query wait for the selection to settle
+        selectionDelay = new PauseTransition(SELECTION_DEBOUNCE);
+        selectionDelay.setOnFinished(e -> ActionTrace.run("Tables: select table", this::queryFieldsForSelection));
         tablesTableView.getSelectionModel().selectedItemProperty().addListener(
             (obs, oldSel, newSel) ->
             {
-                selectedTable = newSel;
-                loadFieldsForTable(newSel);
+                // A row still paging in has no id yet
+                selectedTable = newSel != null && newSel.getId() != null ? newSel : null;
+                loadFieldsForTable(selectedTable);
             }
         );
 
         // Buttons
         Button refreshBtn = new Button("Refresh");
-        refreshBtn.setOnAction(e -> loadTables());
+        refreshBtn.setOnAction(e -> ActionTrace.run("Tables: refresh", this::refreshTables));
 
         HBox btnBox = new HBox(10, refreshBtn);
 
         // Stats label
-        Label statsLabel = new Label();
-        tablesList.addListener((javafx.collections.ListChangeListener<GenTable>) c ->
-            statsLabel.setText(tablesList.size() + " tables")
-        );
+        statsLabel = new Label();
+        tablesList.addListener((javafx.collections.ListChangeListener<GenTable>) c -> updateStats());
+        pagedTables.addListener((javafx.collections.ListChangeListener<GenTable>) c -> updateStats());
 
         box.getChildren().addAll(label, tablesTableView, btnBox, statsLabel);
         VBox.setVgrow(tablesTableView, Priority.ALWAYS);
@@ -136,21 +192,32 @@ public class TablesScreen
         fieldsTableView = new TableView<>();
         fieldsTableView.setItems(fieldsList);
 
-        TableColumn<GenField, String> seqCol = new TableColumn<>("#");
+        // Highlight fields whose names matched the current search
+        fieldsTableView.setRowFactory(tv -> new TableRow<FieldRow>()
+        {
+            @Override
+            protected void updateItem(FieldRow field, boolean empty)
+            {
+                super.updateItem(field, empty);
+                setStyle(!empty && field != null && fieldMatch.matches(field) ? FIELD_MATCH_STYLE : "");
+            }
+        });
+
+        TableColumn<FieldRow, String> seqCol = new TableColumn<>("#");
         seqCol.setCellValueFactory(data ->
             new SimpleStringProperty(String.valueOf(data.getValue().getSeqNo()))
         );
         seqCol.setPrefWidth(40);
 
-        TableColumn<GenField, String> nameCol = new TableColumn<>("Field Name");
+        TableColumn<FieldRow, String> nameCol = new TableColumn<>("Field Name");
         nameCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getFieldName()));
         nameCol.setPrefWidth(180);
 
-        TableColumn<GenField, String> typeCol = new TableColumn<>("Type");
+        TableColumn<FieldRow, String> typeCol = new TableColumn<>("Type");
         typeCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getFieldType()));
         typeCol.setPrefWidth(100);
 
-        TableColumn<GenField, String> lengthCol = new TableColumn<>("Length");
+        TableColumn<FieldRow, String> lengthCol = new TableColumn<>("Length");
         lengthCol.setCellValueFactory(data ->
         {
             Integer len = data.getValue().getFieldLength();
@@ -158,7 +225,7 @@ public class TablesScreen
         });
         lengthCol.setPrefWidth(60);
 
-        TableColumn<GenField, String> keyCol = new TableColumn<>("Key");
+        TableColumn<FieldRow, String> keyCol = new TableColumn<>("Key");
         keyCol.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getKeyFieldYn()));
         keyCol.setPrefWidth(40);
 
@@ -166,7 +233,7 @@ public class TablesScreen
 
         // Stats label
         Label fieldStatsLabel = new Label("Select a table to view fields");
-        fieldsList.addListener((javafx.collections.ListChangeListener<GenField>) c ->
+        fieldsList.addListener((javafx.collections.ListChangeListener<FieldRow>) c ->
         {
             if (selectedTable != null)
             {
@@ -182,105 +249,169 @@ public class TablesScreen
 
     private void loadTables()
     {
-        tablesList.clear();
-        String sql = "SELECT table_id, table_name, table_desc, table_type, active_yn FROM gen_tables ORDER BY table_name";
+        loader.load(catalog::getSnapshot,
+            snapshot -> filterTables(searchField.getText()),
+            e ->
+            {
+                e.printStackTrace();
+                showError("Error loading tables: " + e.getMessage());
+            });
+    }
 
-        try (Connection conn = dbService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery())
-        {
-            while (rs.next())
+    private void refreshTables()
+    {
+        // The catalog listener redraws once the new snapshot is in
+        loader.load(catalog::refresh,
+            snapshot -> { },
+            e ->
             {
-                GenTable table = new GenTable();
-                table.setId(rs.getInt("table_id"));
-                table.setTableName(rs.getString("table_name"));
-                table.setDescription(rs.getString("table_desc"));
-                tablesList.add(table);
-            }
-        }
-        catch (Exception e)
+                e.printStackTrace();
+                showError("Error loading tables: " + e.getMessage());
+            });
+    }
+
+    private void showTables(ObservableList<GenTable> items)
+    {
+        if (tablesTableView.getItems() != items)
         {
-            e.printStackTrace();
-            showError("Error loading tables: " + e.getMessage());
+            tablesTableView.setItems(items);
         }
+        updateStats();
+    }
+
+    private void updateStats()
+    {
+        statsLabel.setText(tablesTableView.getItems().size() + " tables");
     }
 
     private void loadFieldsForTable(GenTable table)
     {
+        // Whatever was in flight is for a previous selection
+        cancelFieldQuery();
+        selectionDelay.stop();
         fieldsList.clear();
         if (table == null)
         {
             return;
         }
 
-        String sql = "SELECT field_id, field_name, field_type, field_length, field_decimal, " +
-                     "seq_no, key_field_yn, active_yn FROM gen_fields " +
-                     "WHERE table_id = ? ORDER BY seq_no";
+        // From the catalog snapshot, or the field cache while the snapshot is still loading
+        List<FieldRow> fields = catalog.peekFields(table.getId());
+        if (fields != null)
+        {
+            repopulate(fieldsList, "fields", fields);
+        }
+        selectionDelay.playFromStart();
+    }
 
-        try (Connection conn = dbService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql))
+    /**
+     * Runs once the selection has been stable for {@link #SELECTION_DEBOUNCE}, so holding an
+     * arrow key costs one query for the row it stops on rather than one per row passed.
+     */
+    private void queryFieldsForSelection()
+    {
+        GenTable table = selectedTable;
+        if (table == null)
         {
-            stmt.setInt(1, table.getId());
-            try (ResultSet rs = stmt.executeQuery())
-            {
-                while (rs.next())
+            return;
+        }
+        if (catalog.peekFields(table.getId()) == null)
+        {
+            CancellableQuery query = new CancellableQuery();
+            fieldQuery = query;
+            loader.load(() -> catalog.getFields(table.getId(), query),
+                loaded ->
                 {
-                    GenField field = new GenField();
-                    field.setId(rs.getInt("field_id"));
-                    field.setTableId(table.getId());
-                    field.setFieldName(rs.getString("field_name"));
-                    field.setFieldType(rs.getString("field_type"));
-                    field.setFieldLength(rs.getObject("field_length") != null ? rs.getInt("field_length") : null);
-                    field.setSeqNo(rs.getInt("seq_no"));
-                    field.setKeyFieldYn(rs.getString("key_field_yn"));
-                    fieldsList.add(field);
-                }
-            }
+                    if (!query.isCancelled() && table == selectedTable)
+                    {
+                        repopulate(fieldsList, "fields", loaded);
+                    }
+                },
+                e ->
+                {
+                    if (!query.isCancelled())
+                    {
+                        e.printStackTrace();
+                        showError("Error loading fields: " + e.getMessage());
+                    }
+                });
         }
-        catch (Exception e)
+        prefetchNeighbours();
+    }
+
+    private void cancelFieldQuery()
+    {
+        if (fieldQuery != null)
         {
-            e.printStackTrace();
-            showError("Error loading fields: " + e.getMessage());
+            fieldQuery.cancel();
+            fieldQuery = null;
         }
     }
 
-    private void filterTables(String searchText)
+    // Warm the rows just above and below the selection so arrowing through the list is instant
+    private void prefetchNeighbours()
     {
-        if (searchText == null || searchText.trim().isEmpty())
+        if (catalog.peek() != null)
         {
-            loadTables();
             return;
         }
-
-        String filter = "%" + searchText.trim().toUpperCase() + "%";
-        tablesList.clear();
-
-        String sql = "SELECT table_id, table_name, table_desc FROM gen_tables " +
-                     "WHERE UPPER(table_name) LIKE ? OR UPPER(table_desc) LIKE ? ORDER BY table_name";
-
-        try (Connection conn = dbService.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql))
+        int index = tablesTableView.getSelectionModel().getSelectedIndex();
+        List<GenTable> items = tablesTableView.getItems();
+        List<Integer> neighbours = new ArrayList<>(2);
+        for (int i : new int[] { index - 1, index + 1 })
         {
-            stmt.setString(1, filter);
-            stmt.setString(2, filter);
-            try (ResultSet rs = stmt.executeQuery())
+            if (i >= 0 && i < items.size() && items.get(i).getId() != null)
             {
-                while (rs.next())
-                {
-                    GenTable table = new GenTable();
-                    table.setId(rs.getInt("table_id"));
-                    table.setTableName(rs.getString("table_name"));
-                    table.setDescription(rs.getString("table_desc"));
-                    tablesList.add(table);
-                }
+                neighbours.add(items.get(i).getId());
             }
         }
-        catch (Exception e)
+        if (!neighbours.isEmpty())
         {
-            e.printStackTrace();
+            loader.load(() ->
+                {
+                    catalog.prefetchFields(neighbours);
+                    return null;
+                },
+                ignored -> { },
+                Throwable::printStackTrace);
         }
     }
 
+    private void filterTables(String searchText)
+    {
+        if (searchText == null || searchText.trim().isEmpty())
+        {
+            setFieldMatch(FieldNameIndex.Match.NONE);
+            showTables(pagedTables);
+            return;
+        }
+
+        MetadataCatalog.Snapshot snapshot = catalog.peek();
+        if (snapshot == null)
+        {
+            // Still loading - the initial load applies whatever is typed by then
+            return;
+        }
+        MetadataCatalog.Search search = snapshot.search(searchText);
+        setFieldMatch(search.getFieldMatch());
+        repopulate(tablesList, "tables", search.getTables());
+        showTables(tablesList);
+    }
+
+    // Every repopulation is a flight recorder event, so a slow redraw shows up in a recording
+    private static <T> void repopulate(ObservableList<T> list, String name, Collection<? extends T> items)
+    {
+        ListRefreshEvent event = ListRefreshEvent.start();
+        list.setAll(items);
+        event.finish("Tables", name, list.size());
+    }
+
+    private void setFieldMatch(FieldNameIndex.Match match)
+    {
+        fieldMatch = match;
+        fieldsTableView.refresh();
+    }
+
     private void showError(String message)
     {
         Alert alert = new Alert(Alert.AlertType.ERROR);
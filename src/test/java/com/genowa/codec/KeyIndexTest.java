@@ -0,0 +1,159 @@
+package com.genowa.codec;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyIndexTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void sortsByUnsignedKeyKeepingFileOrderForTies() throws IOException
+    {
+        // Key is CODE then STATE; NOTE is not part of it
+        RecordLayout layout = layout(null, field("CODE", 3, true), field("NOTE", 2, false), field("STATE", 2, true));
+        List<String> records = new ArrayList<>();
+        Random random = new Random(42);
+        String alphabet = "AB9 é";
+        for (int i = 0; i < 500; i++)
+        {
+            StringBuilder record = new StringBuilder();
+            for (int j = 0; j < 7; j++)
+            {
+                record.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            records.add(record.toString());
+        }
+        KeyIndex index = KeyIndex.build(write(records), layout);
+
+        Integer[] expected = new Integer[records.size()];
+        Arrays.setAll(expected, i -> i);
+        // Stable sort on unsigned bytes, so 'é' sorts after the ASCII characters
+        Arrays.sort(expected, Comparator.comparing(i -> key(records.get(i))));
+        long[] actual = new long[index.size()];
+        Arrays.setAll(actual, index::getRecordNumber);
+        assertEquals(5, index.getKeyWidth());
+        assertArrayEquals(Arrays.stream(expected).mapToLong(Integer::longValue).toArray(), actual);
+    }
+
+    @Test
+    void findsFirstRecordWithKey() throws IOException
+    {
+        KeyIndex index = KeyIndex.build(write(List.of("B1xx", "A2xx", "B1yy", "A1xx")), layout(null, field("KEY", 2, true), field("DATA", 2, false)));
+        assertEquals(3, index.find("A1"));
+        assertEquals(0, index.find("B1"));
+        assertEquals(-1, index.find("C1"));
+        // Shorter keys are blank padded, so they only match blank-padded keys
+        assertEquals(-1, index.find("B"));
+    }
+
+    @Test
+    void keyLongerThanWidthMatchesNothing() throws IOException
+    {
+        KeyIndex index = KeyIndex.build(write(List.of("AB", "AC")), layout(null, field("KEY", 2, true)));
+        assertEquals(-1, index.find("ABX"));
+        assertEquals(-1, index.find("ABX".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(0, index.countWithPrefix("ABX"));
+        assertEquals(0, index.forEachWithPrefix("ABX", number -> { }));
+    }
+
+    @Test
+    void boundsAndPrefixesCompareOnlyTheProbeBytes() throws IOException
+    {
+        KeyIndex index = KeyIndex.build(write(List.of("AA", "AB", "BA", "AB", "CA")), layout(null, field("KEY", 2, true)));
+        byte[] a = { 'A' };
+        assertEquals(0, index.lowerBound(a));
+        assertEquals(3, index.upperBound(a));
+        byte[] ab = { 'A', 'B' };
+        assertEquals(1, index.lowerBound(ab));
+        assertEquals(3, index.upperBound(ab));
+        byte[] z = { 'Z' };
+        assertEquals(5, index.lowerBound(z));
+        assertEquals(5, index.upperBound(z));
+
+        assertEquals(3, index.countWithPrefix("A"));
+        assertEquals(5, index.countWithPrefix(""));
+        List<Long> matches = new ArrayList<>();
+        assertEquals(2, index.forEachWithPrefix("AB", matches::add));
+        assertEquals(List.of(1L, 3L), matches);
+    }
+
+    @Test
+    void usesKeyLengthWhenNoKeyFieldsAreFlagged() throws IOException
+    {
+        RecordLayout layout = layout(2, field("CODE", 3, false), field("DATA", 1, false));
+        KeyIndex index = KeyIndex.build(write(List.of("XYZ1", "ABC2", "XYA3")), layout);
+        assertEquals(2, index.getKeyWidth());
+        assertEquals(1, index.find("AB"));
+        assertEquals(2, index.countWithPrefix("XY"));
+    }
+
+    @Test
+    void reopensStoredIndexUntilTheDataFileChanges() throws IOException
+    {
+        RecordLayout layout = layout(null, field("KEY", 2, true));
+        Path data = write(List.of("BB", "AA"));
+        KeyIndex.build(data, layout);
+        Path indexFile = KeyIndex.indexFileFor(data);
+        assertTrue(Files.exists(indexFile));
+        assertEquals(1, KeyIndex.openOrBuild(data, layout).find("AA"));
+
+        Files.writeString(data, "CC\nAA\nBB\n", StandardCharsets.ISO_8859_1);
+        KeyIndex rebuilt = KeyIndex.openOrBuild(data, layout);
+        assertEquals(3, rebuilt.size());
+        assertEquals(2, rebuilt.find("BB"));
+    }
+
+    private static String key(String record)
+    {
+        // CODE (bytes 0-2) then STATE (bytes 5-6); ISO-8859-1 chars compare as unsigned bytes
+        return record.substring(0, 3) + record.substring(5, 7);
+    }
+
+    private Path write(List<String> records) throws IOException
+    {
+        Path file = Files.createTempFile(dir, "data", ".dat");
+        Files.writeString(file, String.join("\n", records) + "\n", StandardCharsets.ISO_8859_1);
+        return file;
+    }
+
+    private static RecordLayout layout(Integer keyLength, GenField... fields)
+    {
+        GenTable table = new GenTable();
+        table.setTableName("TEST");
+        table.setKeyLength(keyLength);
+        for (int i = 0; i < fields.length; i++)
+        {
+            fields[i].setSeqNo(i + 1);
+        }
+        return RecordLayout.compile(table, List.of(fields));
+    }
+
+    private static GenField field(String name, int length, boolean key)
+    {
+        GenField field = new GenField();
+        field.setFieldName(name);
+        field.setFieldType("C");
+        field.setFieldLength(length);
+        field.setKeyFieldYn(key ? "Y" : "N");
+        return field;
+    }
+}
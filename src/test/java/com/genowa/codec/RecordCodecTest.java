@@ -0,0 +1,125 @@
+package com.genowa.codec;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecordCodecTest
+{
+    @Test
+    void readsImpliedDecimalPlaces()
+    {
+        RecordCodec codec = codec(field("AMT", "N", 6, 2));
+        ByteBuffer buf = record("001234");
+        assertEquals(1234L, codec.readUnscaled(buf, 0, 0));
+        assertEquals(12L, codec.readLong(buf, 0, 0));
+        assertEquals(12.34, codec.readDouble(buf, 0, 0));
+        assertEquals(new BigDecimal("12.34"), codec.readDecimal(buf, 0, 0));
+    }
+
+    @Test
+    void readsSignsBlanksAndExplicitPoint()
+    {
+        RecordCodec codec = codec(field("AMT", "N", 8, 2));
+        assertEquals(-1234L, codec.readUnscaled(record("  -12.34"), 0, 0));
+        assertEquals(1230L, codec.readUnscaled(record("   +12.3"), 0, 0));
+        // Digits past the scale are dropped
+        assertEquals(1234L, codec.readUnscaled(record("12.34567"), 0, 0));
+        assertEquals(new BigDecimal("-12.30"), codec.readDecimal(record("   -12.3"), 0, 0));
+    }
+
+    @Test
+    void readsOverpunchedSign()
+    {
+        RecordCodec codec = codec(field("AMT", "N", 5, 2));
+        assertEquals(12345L, codec.readUnscaled(record("1234E"), 0, 0));
+        assertEquals(-12345L, codec.readUnscaled(record("1234N"), 0, 0));
+        assertEquals(-12340L, codec.readUnscaled(record("1234}"), 0, 0));
+        assertEquals(new BigDecimal("-123.45"), codec.readDecimal(record("1234N"), 0, 0));
+    }
+
+    @Test
+    void rejectsOverpunchBeforeLastByte()
+    {
+        RecordCodec codec = codec(field("AMT", "N", 5, 0));
+        assertThrows(NumberFormatException.class, () -> codec.readUnscaled(record("12E45"), 0, 0));
+        assertThrows(NumberFormatException.class, () -> codec.readDecimal(record("12E45"), 0, 0));
+    }
+
+    @Test
+    void rejectsValueTooLargeForLong()
+    {
+        RecordCodec codec = codec(field("BIG", "N", 20, 0));
+        assertThrows(NumberFormatException.class, () -> codec.readUnscaled(record("99999999999999999999"), 0, 0));
+        assertEquals(new BigDecimal("99999999999999999999"), codec.readDecimal(record("99999999999999999999"), 0, 0));
+        assertEquals(new BigDecimal("-99999999999999999999"), codec.readDecimal(record("9999999999999999999R"), 0, 0));
+    }
+
+    @Test
+    void readDecimalWidensWhenExplicitPointOverflowsScale()
+    {
+        // 18 bytes fit a long as written, but not once 17 more places are implied
+        RecordCodec codec = codec(field("AMT", "N", 18, 17));
+        ByteBuffer buf = record("99999999999999999.");
+        assertThrows(NumberFormatException.class, () -> codec.readUnscaled(buf, 0, 0));
+        assertEquals(new BigDecimal("99999999999999999.00000000000000000"), codec.readDecimal(buf, 0, 0));
+    }
+
+    @Test
+    void rejectsScaleOutOfRange()
+    {
+        assertThrows(IllegalArgumentException.class, () -> codec(field("AMT", "N", 30, 19)));
+        assertThrows(IllegalArgumentException.class, () -> codec(field("AMT", "N", 30, -1)));
+        RecordCodec codec = codec(field("AMT", "N", 20, RecordLayout.MAX_SCALE));
+        assertEquals(0L, codec.readLong(record("00000000000000000012"), 0, 0));
+        assertEquals(new BigDecimal("0.000000000000000012"), codec.readDecimal(record("00000000000000000012"), 0, 0));
+    }
+
+    @Test
+    void writesAndReadsBack()
+    {
+        RecordCodec codec = codec(field("NAME", "C", 6, 0), field("AMT", "N", 7, 2));
+        ByteBuffer buf = ByteBuffer.allocate(codec.getLayout().getRecordLength());
+        codec.clear(buf, 0);
+        codec.writeString(buf, 0, 0, "ABC");
+        codec.writeDecimal(buf, 0, 1, new BigDecimal("-12.345"));
+        assertEquals("ABC", codec.readString(buf, 0, 0));
+        assertEquals(new BigDecimal("-12.35"), codec.readDecimal(buf, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> codec.writeLong(buf, 0, 1, 100_000L));
+    }
+
+    private static RecordCodec codec(GenField... fields)
+    {
+        GenTable table = new GenTable();
+        table.setTableName("TEST");
+        for (int i = 0; i < fields.length; i++)
+        {
+            fields[i].setSeqNo(i + 1);
+        }
+        return new RecordCodec(RecordLayout.compile(table, List.of(fields)));
+    }
+
+    private static GenField field(String name, String type, int length, int decimals)
+    {
+        GenField field = new GenField();
+        field.setFieldName(name);
+        field.setFieldType(type);
+        field.setFieldLength(length);
+        field.setDecimalPlaces(decimals);
+        return field;
+    }
+
+    private static ByteBuffer record(String text)
+    {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,330 @@
+package com.genowa.rating;
+
+import com.genowa.model.GenField;
+import com.genowa.model.GenTable;
+import com.genowa.service.CancellableQuery;
+import com.genowa.service.CatalogSnapshotFile;
+import com.genowa.service.CatalogStamp;
+import com.genowa.service.MetadataCatalog;
+import com.genowa.service.MetadataRepository;
+import com.genowa.service.PageSource;
+import com.genowa.service.StringDictionary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLookupEngineTest
+{
+    private static final int POLICY = 1;
+    private static final int DETAIL_B = 2;
+    private static final int DETAIL_A = 3;
+    private static final int DETAIL_NONE = 4;
+    private static final int STATE = 5;
+    private static final int COUNTRY = 6;
+    private static final int LOOP_A = 7;
+    private static final int LOOP_B = 8;
+    private static final int FLAT = 9;
+    private static final int RATES_FILE = 10;
+
+    @TempDir
+    Path dir;
+
+    private MetadataCatalog.Snapshot snapshot;
+    private final Map<String, Map<String, Long>> rates = new HashMap<>();
+    private final AtomicInteger opens = new AtomicInteger();
+
+    @BeforeEach
+    void loadCatalog() throws SQLException
+    {
+        List<GenTable> tables = List.of(
+            table(POLICY, "POLICY", STATE, null, 4, "Y"),
+            table(DETAIL_B, "DETAIL_B", POLICY, "B", 6, "N"),
+            table(DETAIL_A, "DETAIL_A", POLICY, "A", 6, "N"),
+            table(DETAIL_NONE, "DETAIL_NONE", POLICY, null, 6, "N"),
+            table(STATE, "STATE", COUNTRY, null, 2, "N"),
+            table(COUNTRY, "COUNTRY", null, null, null, "N"),
+            table(LOOP_A, "LOOP_A", LOOP_B, null, 2, "N"),
+            table(LOOP_B, "LOOP_B", LOOP_A, null, 2, "N"),
+            table(FLAT, "FLAT", null, null, 4, "Y"),
+            table(RATES_FILE, "RATES_FILE", null, null, null, "N"));
+        GenField key = new GenField();
+        key.setTableId(RATES_FILE);
+        key.setFieldName("RATE_KEY");
+        key.setFieldType("C");
+        key.setFieldLength(3);
+        key.setSeqNo(1);
+        key.setKeyFieldYn("Y");
+        snapshot = new MetadataCatalog(new FixedRepository(tables, List.of(key)), new StringDictionary(),
+            new CatalogSnapshotFile(dir.resolve("catalog.snapshot"))).getSnapshot();
+    }
+
+    @Test
+    void chainRunsDetailsByLevelThenTableThenParents()
+    {
+        RateLookupEngine engine = engine(this::mapSource);
+        assertEquals(List.of("DETAIL_A", "DETAIL_B", "DETAIL_NONE", "POLICY", "STATE", "COUNTRY"),
+            names(engine.getChain(POLICY)));
+        // Details only count when has_detail_yn is Y
+        assertEquals(List.of("STATE", "COUNTRY"), names(engine.getChain(STATE)));
+        assertEquals(List.of("FLAT"), names(engine.getChain(FLAT)));
+        assertNull(engine.getChain(99));
+    }
+
+    @Test
+    void chainStopsAtCycle()
+    {
+        RateLookupEngine engine = engine(this::mapSource);
+        assertEquals(List.of("LOOP_A", "LOOP_B"), names(engine.getChain(LOOP_A)));
+        assertEquals(List.of("LOOP_B", "LOOP_A"), names(engine.getChain(LOOP_B)));
+    }
+
+    @Test
+    void chainsAreMemoisedAndBounded()
+    {
+        RateLookupEngine engine = new RateLookupEngine(snapshot, this::mapSource, 2);
+        RateChain first = engine.getChain(POLICY);
+        assertSame(first, engine.getChain(POLICY));
+        engine.getChain(STATE);
+        engine.getChain(COUNTRY);
+        assertEquals(2, engine.getCachedChainCount());
+        assertEquals(1, engine.getChainHits());
+        assertEquals(3, engine.getChainMisses());
+    }
+
+    @Test
+    void lookupFallsBackLevelByLevelCuttingTheKey() throws IOException
+    {
+        rates("DETAIL_B", "ABCDEF", 11);
+        rates("STATE", "AB", 51);
+        rates("COUNTRY", "XYZ123", 61);
+        RateLookupEngine engine = engine(this::mapSource);
+
+        RateHit detail = engine.lookup(POLICY, "ABCDEFGH");
+        assertEquals("DETAIL_B", detail.getTable().getTableName());
+        assertEquals("B", detail.getLevelTypeCode());
+        assertEquals(1, detail.getLevel());
+        assertEquals("ABCDEF", detail.getKey());
+        assertEquals(11, detail.getRecordNumber());
+
+        RateHit state = engine.lookup(POLICY, "ABZZZZ");
+        assertEquals("STATE", state.getTable().getTableName());
+        assertEquals("AB", state.getKey());
+        assertEquals(4, state.getLevel());
+        assertTrue(state.isFallback());
+
+        // No key_length at the top, so the key is used whole
+        RateHit country = engine.lookup(POLICY, "XYZ123");
+        assertEquals("COUNTRY", country.getTable().getTableName());
+        assertEquals("XYZ123", country.getKey());
+
+        assertNull(engine.lookup(POLICY, "QQQQQQ"));
+        assertNull(engine.lookup(99, "AB"));
+
+        List<RateHit> hits = engine.lookupAll(STATE, List.of("ABC", "QQ"));
+        assertEquals("AB", hits.get(0).getKey());
+        assertFalse(hits.get(0).isFallback());
+        assertNull(hits.get(1));
+    }
+
+    @Test
+    void keyIsCutToTheSourceKeyWidthWhenKeyLengthIsUnset() throws IOException
+    {
+        Files.writeString(dir.resolve("RATES_FILE" + DataFileRateSources.EXTENSION), "AAA\nABC\n", StandardCharsets.ISO_8859_1);
+        RateLookupEngine engine = engine(new DataFileRateSources(dir, snapshot));
+        RateHit hit = engine.lookup(RATES_FILE, "ABCDEF");
+        assertEquals("ABC", hit.getKey());
+        assertEquals(1, hit.getRecordNumber());
+        // Tables without a data file have no rates
+        assertNull(engine.lookup(COUNTRY, "ABC"));
+    }
+
+    @Test
+    void sourceIsOpenedOnceUnderConcurrentMisses() throws Exception
+    {
+        rates("FLAT", "ABCD", 91);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLookupEngine engine = engine(table ->
+        {
+            entered.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return mapSource(table);
+        });
+
+        List<RateHit> hits = new ArrayList<>();
+        Runnable lookup = () ->
+        {
+            try
+            {
+                RateHit hit = engine.lookup(FLAT, "ABCD");
+                synchronized (hits)
+                {
+                    hits.add(hit);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        };
+        Thread first = Thread.ofVirtual().start(lookup);
+        entered.await();
+        Thread second = Thread.ofVirtual().start(lookup);
+        Thread.sleep(100);
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, opens.get());
+        assertEquals(2, hits.size());
+        assertEquals(91, hits.get(0).getRecordNumber());
+        assertEquals(91, hits.get(1).getRecordNumber());
+    }
+
+    @Test
+    void failedOpenIsRetried() throws IOException
+    {
+        rates("FLAT", "ABCD", 91);
+        AtomicInteger attempts = new AtomicInteger();
+        RateLookupEngine engine = engine(table ->
+        {
+            if (attempts.incrementAndGet() == 1)
+            {
+                throw new IOException("disk gone");
+            }
+            return mapSource(table);
+        });
+        assertThrows(IOException.class, () -> engine.lookup(FLAT, "ABCD"));
+        assertEquals(91, engine.lookup(FLAT, "ABCD").getRecordNumber());
+        assertEquals(2, attempts.get());
+    }
+
+    private RateLookupEngine engine(RateSourceProvider provider)
+    {
+        return new RateLookupEngine(snapshot, provider, 16);
+    }
+
+    private RateSource mapSource(GenTable table)
+    {
+        opens.incrementAndGet();
+        Map<String, Long> records = rates.get(table.getTableName());
+        return records == null ? null : key -> records.getOrDefault(key, -1L);
+    }
+
+    private void rates(String table, String key, long record)
+    {
+        rates.computeIfAbsent(table, name -> new HashMap<>()).put(key, record);
+    }
+
+    private static List<String> names(RateChain chain)
+    {
+        List<String> names = new ArrayList<>();
+        for (int level = 0; level < chain.size(); level++)
+        {
+            names.add(chain.getTable(level).getTableName());
+        }
+        return names;
+    }
+
+    private static GenTable table(int id, String name, Integer parent, String level, Integer keyLength, String hasDetail)
+    {
+        GenTable table = new GenTable();
+        table.setTableId(id);
+        table.setTableName(name);
+        table.setParentTableId(parent);
+        table.setLevelTypeCode(level);
+        table.setKeyLength(keyLength);
+        table.setHasDetailYn(hasDetail);
+        return table;
+    }
+
+    private static final class FixedRepository implements MetadataRepository
+    {
+        private final List<GenTable> tables;
+        private final List<GenField> fields;
+
+        FixedRepository(List<GenTable> tables, List<GenField> fields)
+        {
+            this.tables = tables;
+            this.fields = fields;
+        }
+
+        @Override
+        public List<GenTable> loadTables()
+        {
+            return tables;
+        }
+
+        @Override
+        public List<GenField> loadFields(int tableId, CancellableQuery query)
+        {
+            return fields.stream().filter(field -> field.getTableId() == tableId).toList();
+        }
+
+        @Override
+        public Map<Integer, List<GenField>> loadFields(Collection<Integer> tableIds)
+        {
+            Map<Integer, List<GenField>> result = new HashMap<>();
+            for (Integer tableId : tableIds)
+            {
+                result.put(tableId, loadFields(tableId, null));
+            }
+            return result;
+        }
+
+        @Override
+        public void forEachField(RowHandler<GenField> handler) throws SQLException
+        {
+            for (GenField field : fields)
+            {
+                handler.accept(field);
+            }
+        }
+
+        @Override
+        public List<String> loadInsuranceLines()
+        {
+            return List.of();
+        }
+
+        @Override
+        public PageSource<GenTable> getTablePages()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CatalogStamp stamp()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}